@@ -1,10 +1,9 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.HashMap;
 
 import keyboardInput.Keyboard;
 
@@ -15,27 +14,26 @@ public class MainTest {
      * @param args
      */
     private static Socket socket;
-    private static ObjectOutputStream out;
-    private static ObjectInputStream in; // stream con richieste del client
+    private static ServerChannel channel; // protocollo con richieste del client
     private String db;
     private String table;
     private int k;
+    private static final int PAGE_SIZE = 20; // esempi per pagina dei cluster
 
     /**
      * Costruttore della classe MainTest.
      *
-     * @param ip   Indirizzo IP del server remoto.
-     * @param port Porta del server remoto.
+     * @param ip     Indirizzo IP del server remoto.
+     * @param port   Porta del server remoto.
+     * @param binary true per il protocollo binario, false per il protocollo originale basato sulla serializzazione.
      * @throws IOException Eccezione in caso di errore di input/output.
      */
-    public MainTest(String ip, int port) throws IOException {
+    public MainTest(String ip, int port, boolean binary) throws IOException {
         InetAddress addr = InetAddress.getByName(ip); //ip
         System.out.println("addr = " + addr);
         socket = new Socket(addr, port); //Port
         System.out.println(socket);
-        out = new ObjectOutputStream(socket.getOutputStream());
-        in = new ObjectInputStream(socket.getInputStream());
-        // stream con richieste del client
+        channel = new ServerChannel(socket, binary);
     }
     /**
      * Visualizza il menu e richiede la scelta dell'utente.
@@ -48,9 +46,11 @@ public class MainTest {
         do {
             System.out.println("(1) Carica Cluster da File");
             System.out.println("(2) Carica Dati");
+            System.out.println("(3) Carica Dati da file CSV");
+            System.out.println("(4) Stato del server");
             System.out.print("Risposta: ");
             answer = Keyboard.readInt();
-        } while (answer <= 0 || answer > 2);
+        } while (answer <= 0 || answer > 4);
         return answer;
     }
     /**
@@ -63,50 +63,82 @@ public class MainTest {
      * @throws ClassNotFoundException Eccezione in caso di classe non trovata durante la deserializzazione.
      */
     private String learningFromFile() throws SocketException, ServerException, IOException, ClassNotFoundException {
-        out.writeObject(3);
         System.out.print("Inserisci nome database: ");
         db=Keyboard.readString();
         System.out.print("Inserisci nome tabella: ");
         table=Keyboard.readString();
         System.out.print("Inserisci numero di cluster: ");
         k=Keyboard.readInt();
-        out.writeObject(db+table+k);
-        String result = (String) in.readObject();
-        if (result.equals("OK")) return (String) in.readObject();
+        channel.send(3, db+table+k);
+        String result = channel.readResult();
+        if (result.equals("OK")) return channel.readString();
         else throw new ServerException(result);
     }
 
     private String storeTableFromDb() throws SocketException, ServerException, IOException, ClassNotFoundException {
         String result;
-        out.writeObject(0);
         if (option("Vuoi usare i valori di default? (y/n) ")) {
-            out.writeObject("localhost");
             db="MapDB";
-            out.writeObject(db);
             table="playtennis";
-            out.writeObject(table);
-            out.writeObject("MapUser");
-            out.writeObject("map");
+            channel.send(0, "localhost", db, table, "MapUser", "map");
         } else {
             System.out.print("Inserisci il nome del server (ad esempio localhost): ");
-            out.writeObject(Keyboard.readString());
+            String server = Keyboard.readString();
             System.out.print("Inserisci il nome del database (ad esempio MapDB): ");
             db=Keyboard.readString();
-            out.writeObject(db);
             System.out.print("Inserisci il nome della tabella (ad esempio playtennis): ");
             table=Keyboard.readString();
-            out.writeObject(table);
             System.out.print("Inserisci il nome dell'utente (ad esempio MapUser): ");
-            out.writeObject(Keyboard.readString());
+            String user = Keyboard.readString();
             System.out.print("Inserisci la password dell'utente (ad esempio map): ");
-            out.writeObject(Keyboard.readString());
+            channel.send(0, server, db, table, user, Keyboard.readString());
         }
-        result = (String) in.readObject();
-        if (result.equals("OK")) return (String) in.readObject();
+        result = channel.readResult();
+        if (result.equals("OK")) return channel.readString();
         else throw new ServerException(result);
     }
+    /**
+     * Carica i dati da un file CSV presente nella cartella dei dati del server.
+     *
+     * @return I dati caricati in forma di stringa.
+     * @throws SocketException    Eccezione in caso di errore del socket.
+     * @throws ServerException    Eccezione lanciata dal server.
+     * @throws IOException        Eccezione in caso di errore di input/output.
+     * @throws ClassNotFoundException Eccezione in caso di classe non trovata durante la deserializzazione.
+     */
+    private String storeTableFromFile() throws SocketException, ServerException, IOException, ClassNotFoundException {
+        System.out.print("Inserisci il nome del file (ad esempio playtennis.csv): ");
+        String fileName = Keyboard.readString();
+        System.out.print("Inserisci il separatore dei campi (ad esempio ,): ");
+        channel.send(6, fileName, Keyboard.readString());
+        db = "file";
+        table = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+        String result = channel.readResult();
+        if (result.equals("OK")) return channel.readString();
+        else throw new ServerException(result);
+    }
+
+    /**
+     * Richiede lo stato del server: aperture delle connessioni, sessioni e addestramenti in corso e in coda
+     * e memoria trattenuta da ciascuna sessione aperta.
+     *
+     * @return Lo stato del server in forma di stringa.
+     * @throws SocketException    Eccezione in caso di errore del socket.
+     * @throws ServerException    Eccezione lanciata dal server.
+     * @throws IOException        Eccezione in caso di errore di input/output.
+     * @throws ClassNotFoundException Eccezione in caso di classe non trovata durante la deserializzazione.
+     */
+    private String serverStatus() throws SocketException, ServerException, IOException, ClassNotFoundException {
+        channel.send(9);
+        String result = channel.readResult();
+        if (result.equals("OK")) return channel.readString();
+        else throw new ServerException(result);
+    }
+
     /**
      * Esegue l'apprendimento dai dati del database.
+     * Con il protocollo binario il server restituisce solo il riepilogo dei cluster (centroidi, numero di
+     * esempi e distanze medie), i cui esempi si consultano a pagine con browseMembers.
      *
      * @return Il set di cluster appreso.
      * @throws SocketException    Eccezione in caso di errore del socket.
@@ -115,17 +147,71 @@ public class MainTest {
      * @throws ClassNotFoundException Eccezione in caso di classe non trovata durante la deserializzazione.
      */
     private String learningFromDbTable() throws SocketException, ServerException, IOException, ClassNotFoundException {
-        out.writeObject(1);
         System.out.print("Numero di cluster: ");
         k = Keyboard.readInt();
-        out.writeObject(k);
-        String result = (String) in.readObject();
+        boolean withOptions = option("Vuoi specificare opzioni di apprendimento? (y/n) ");
+        if (channel.isBinary()) {
+            channel.send(7, k, withOptions ? readOptions() : new HashMap<String, String>());
+        } else if (withOptions) {
+            HashMap<String, String> options = readOptions();
+            channel.send(5, k, options);
+        } else {
+            channel.send(1, k);
+        }
+        String result = channel.readResult();
         if (result.equals("OK")) {
-            System.out.println("Numero di Iterazioni: " + in.readObject());
-            return (String) in.readObject();
+            System.out.println("Numero di Iterazioni: " + channel.readInt());
+            String clusterSet = channel.readString();
+            String statistics = withOptions || channel.isBinary() ? channel.readString() : null;
+            if (withOptions) System.out.println(statistics);
+            return clusterSet;
         } else throw new ServerException(result);
     }
 
+    /**
+     * Consulta a pagine gli esempi dei cluster dell'ultimo apprendimento, su richiesta dell'utente.
+     * Disponibile solo con il protocollo binario.
+     *
+     * @throws SocketException    Eccezione in caso di errore del socket.
+     * @throws ServerException    Eccezione lanciata dal server.
+     * @throws IOException        Eccezione in caso di errore di input/output.
+     * @throws ClassNotFoundException Eccezione in caso di classe non trovata durante la deserializzazione.
+     */
+    private void browseMembers() throws SocketException, ServerException, IOException, ClassNotFoundException {
+        if (!channel.isBinary()) return;
+        while (option("Vuoi visualizzare gli esempi di un cluster? (y/n) ")) {
+            System.out.print("Numero del cluster: ");
+            int cluster = Keyboard.readInt();
+            int cursor = 0;
+            do {
+                channel.send(8, cluster, cursor, PAGE_SIZE);
+                String result = channel.readResult();
+                if (!result.equals("OK")) throw new ServerException(result);
+                System.out.print(channel.readString());
+                cursor = channel.readInt();
+            } while (cursor >= 0 && option("Vuoi visualizzare la pagina successiva? (y/n) "));
+        }
+    }
+
+    /**
+     * Legge da tastiera le opzioni di apprendimento nella forma chiave=valore, separate da spazi
+     * (ad esempio threads=4).
+     *
+     * @return La mappa delle opzioni inserite.
+     */
+    private HashMap<String, String> readOptions() {
+        HashMap<String, String> options = new HashMap<>();
+        System.out.print("Opzioni (chiave=valore separate da spazi, ad esempio threads=4 algorithm=elkan seed=42 restarts=5): ");
+        String line = Keyboard.readString();
+        if (line == null) return options;
+        for (String token : line.trim().split("\\s+")) {
+            int eq = token.indexOf('=');
+            if (eq > 0) options.put(token.substring(0, eq), token.substring(eq + 1));
+            else if (!token.isEmpty()) System.out.println("Opzione ignorata: " + token);
+        }
+        return options;
+    }
+
     /**
      * Archivia il set di cluster in un file.
      *
@@ -135,27 +221,27 @@ public class MainTest {
      * @throws ClassNotFoundException Eccezione in caso di classe non trovata durante la deserializzazione.
      */
     private void storeClusterInFile() throws SocketException, ServerException, IOException, ClassNotFoundException {
-        out.writeObject(2);
-        out.writeObject(db+table+k);
-        String result = (String) in.readObject();
+        channel.send(2, db+table+k);
+        String result = channel.readResult();
         if (!result.equals("OK")) throw new ServerException(result);
     }
 
     /**
      * Metodo principale per avviare il client.
      *
-     * @param args Argomenti della riga di comando (ip e porta del server remoto).
+     * @param args Argomenti della riga di comando (ip e porta del server remoto, seguiti facoltativamente da
+     *             object per usare il protocollo originale con i server che non supportano quello binario).
      */
     public static void main(String[] args) {
-        if (args.length != 2) {
-            System.out.println("Inserire ip e porta come argomenti");
+        if (args.length < 2 || args.length > 3 || (args.length == 3 && !args[2].equals("object"))) {
+            System.out.println("Inserire ip e porta come argomenti, seguiti facoltativamente da object");
             return;
         }
         String ip = args[0];
         int port = Integer.parseInt(args[1]);
         MainTest main;
         try {
-            main = new MainTest(ip, port);
+            main = new MainTest(ip, port, args.length == 2);
         } catch (IOException e) {
             System.out.println(e);
             return;
@@ -179,10 +265,10 @@ public class MainTest {
                         }
                     } while (option("Vuoi ripetere l'esecuzione? (y/n) "));
                 }
-                case 2 -> { // learning from db
+                case 2, 3 -> { // learning from db o da file CSV
                     while (true) {
                         try {
-                            String data = main.storeTableFromDb();
+                            String data = menuAnswer == 2 ? main.storeTableFromDb() : main.storeTableFromFile();
                             System.out.println(data);
                             break; //esce fuori dal while
                         } catch (ServerException e) {
@@ -200,6 +286,7 @@ public class MainTest {
                         try {
                             String clusterSet = main.learningFromDbTable();
                             System.out.println(clusterSet);
+                            main.browseMembers();
                             main.storeClusterInFile();
                         } catch (ServerException e) {
                             System.out.println(e);
@@ -212,12 +299,20 @@ public class MainTest {
                         }
                     } while (option("Vuoi ripetere l'esecuzione? (y/n) "));
                 } //fine case 2
+                case 4 -> {
+                    try {
+                        System.out.println(main.serverStatus());
+                    } catch (ServerException e) {
+                        System.out.println(e);
+                    } catch (IOException | ClassNotFoundException e) {
+                        System.out.println(e);
+                        return;
+                    }
+                }
             }
         } while (option("Vuoi scegliere una nuova operazione da menu? (y/n) "));
         try {
-            out.writeObject(4);
-            in.close();
-            out.close();
+            channel.send(4);
             socket.close();
         } catch (IOException e) {
             System.out.println(e);
@@ -0,0 +1,186 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * La classe ServerChannel rappresenta il protocollo con cui il client invia le richieste al server e ne legge
+ * le risposte: il protocollo binario a messaggi oppure il protocollo originale basato sulla serializzazione
+ * Java, per i server che non supportano il primo.
+ * Nel protocollo binario, dopo lo scambio di apertura (MAGIC e versione), ogni messaggio è formato dal tipo
+ * (1 byte), dalla lunghezza del contenuto (4 byte) e dal contenuto; gli interi occupano 4 byte, le stringhe
+ * la loro lunghezza in byte (4 byte) seguita dalla codifica UTF-8.
+ */
+class ServerChannel {
+
+    /**
+     * Identificativo del protocollo binario all'inizio della connessione ("KMBP").
+     */
+    private static final int MAGIC = 0x4B4D4250;
+
+    /**
+     * Versione del protocollo binario richiesta dal client.
+     */
+    private static final byte VERSION = 1;
+
+    /**
+     * Tipo della risposta a una richiesta conclusa con successo.
+     */
+    private static final byte OK = 64;
+
+    /**
+     * Vero se viene usato il protocollo binario.
+     */
+    private final boolean binary;
+
+    /**
+     * Stream del protocollo originale.
+     */
+    private ObjectOutputStream objectOut;
+    private ObjectInputStream objectIn;
+
+    /**
+     * Stream del protocollo binario.
+     */
+    private DataOutputStream dataOut;
+    private DataInputStream dataIn;
+
+    /**
+     * Contenuto dell'ultima risposta ricevuta con il protocollo binario.
+     */
+    private DataInputStream response;
+
+    /**
+     * Costruttore della classe ServerChannel. Esegue l'apertura del protocollo scelto.
+     *
+     * @param socket Il socket connesso al server.
+     * @param binary true per il protocollo binario, false per il protocollo originale.
+     * @throws IOException Eccezione in caso di errore di input/output o di risposta di apertura non valida.
+     */
+    ServerChannel(Socket socket, boolean binary) throws IOException {
+        this.binary = binary;
+        if (binary) {
+            dataOut = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            dataIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            dataOut.writeInt(MAGIC);
+            dataOut.writeByte(VERSION);
+            dataOut.flush();
+            if (dataIn.readInt() != MAGIC) throw new StreamCorruptedException("Il server non supporta il protocollo binario");
+            dataIn.readByte();
+        } else {
+            objectOut = new ObjectOutputStream(socket.getOutputStream());
+            objectIn = new ObjectInputStream(socket.getInputStream());
+        }
+    }
+
+    /**
+     * Indica se viene usato il protocollo binario.
+     *
+     * @return true per il protocollo binario, false per il protocollo originale.
+     */
+    boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Invia una richiesta al server.
+     *
+     * @param type   Il codice della richiesta.
+     * @param params I parametri della richiesta: stringhe, interi o mappe di stringhe.
+     * @throws IOException Eccezione in caso di errore di input/output.
+     */
+    @SuppressWarnings("unchecked")
+    void send(int type, Object... params) throws IOException {
+        if (!binary) {
+            objectOut.writeObject(type);
+            for (Object param : params) objectOut.writeObject(param);
+            objectOut.reset(); // svuota la tabella degli oggetti inviati, che altrimenti crescerebbe per tutta la sessione
+            objectOut.flush();
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream request = new DataOutputStream(bytes);
+        for (Object param : params) {
+            if (param instanceof Integer value) {
+                request.writeInt(value);
+            } else if (param instanceof Map) {
+                Map<String, String> options = (Map<String, String>) param;
+                request.writeInt(options.size());
+                for (Map.Entry<String, String> option : options.entrySet()) {
+                    writeString(request, option.getKey());
+                    writeString(request, option.getValue());
+                }
+            } else {
+                writeString(request, (String) param);
+            }
+        }
+        dataOut.writeByte(type);
+        dataOut.writeInt(bytes.size());
+        bytes.writeTo(dataOut);
+        dataOut.flush();
+    }
+
+    /**
+     * Scrive una stringa come lunghezza in byte seguita dalla codifica UTF-8.
+     *
+     * @param out   Lo stream di destinazione.
+     * @param value La stringa.
+     * @throws IOException Eccezione in caso di errore di input/output.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Legge l'esito della risposta alla richiesta inviata.
+     *
+     * @return "OK" in caso di successo, altrimenti il messaggio di errore del server.
+     * @throws IOException            Eccezione in caso di errore di input/output.
+     * @throws ClassNotFoundException Eccezione in caso di classe non trovata durante la deserializzazione.
+     */
+    String readResult() throws IOException, ClassNotFoundException {
+        if (!binary) return (String) objectIn.readObject();
+        byte type = dataIn.readByte();
+        byte[] bytes = new byte[dataIn.readInt()];
+        dataIn.readFully(bytes);
+        response = new DataInputStream(new ByteArrayInputStream(bytes));
+        return type == OK ? "OK" : readString();
+    }
+
+    /**
+     * Legge un risultato di tipo stringa della risposta.
+     *
+     * @return Il risultato.
+     * @throws IOException            Eccezione in caso di errore di input/output.
+     * @throws ClassNotFoundException Eccezione in caso di classe non trovata durante la deserializzazione.
+     */
+    String readString() throws IOException, ClassNotFoundException {
+        if (!binary) return (String) objectIn.readObject();
+        byte[] bytes = new byte[response.readInt()];
+        response.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Legge un risultato intero della risposta.
+     *
+     * @return Il risultato.
+     * @throws IOException            Eccezione in caso di errore di input/output.
+     * @throws ClassNotFoundException Eccezione in caso di classe non trovata durante la deserializzazione.
+     */
+    int readInt() throws IOException, ClassNotFoundException {
+        if (!binary) return (Integer) objectIn.readObject();
+        return response.readInt();
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * La classe BinaryChannel implementa il protocollo binario a messaggi.
+ * All'apertura della connessione il client invia MAGIC seguito dalla versione più alta che supporta (1 byte);
+ * il server risponde con MAGIC e la versione scelta. Ogni messaggio successivo è formato dal tipo (1 byte),
+ * dalla lunghezza del contenuto (4 byte) e dal contenuto, in cui gli interi occupano 4 byte, le stringhe
+ * la loro lunghezza in byte (4 byte) seguita dalla codifica UTF-8 e le mappe il numero di coppie (4 byte)
+ * seguito dalle coppie di stringhe chiave e valore.
+ * Il tipo di una richiesta coincide con il codice della richiesta nel protocollo originale; il tipo di una
+ * risposta è OK, seguito dai risultati, o ERROR, seguito dal messaggio di errore.
+ */
+class BinaryChannel implements SessionChannel {
+
+    /**
+     * Identificativo del protocollo all'inizio della connessione ("KMBP"). I primi due byte differiscono
+     * da quelli dell'intestazione di uno stream serializzato (0xACED), così che il server possa distinguere
+     * i due protocolli.
+     */
+    static final int MAGIC = 0x4B4D4250;
+
+    /**
+     * Versione più alta del protocollo supportata dal server.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * Tipo della risposta a una richiesta conclusa con successo.
+     */
+    static final byte OK = 64;
+
+    /**
+     * Tipo della risposta a una richiesta fallita.
+     */
+    static final byte ERROR = 65;
+
+    /**
+     * Lunghezza massima in byte del contenuto di una richiesta.
+     */
+    private static final int MAX_REQUEST = 1024 * 1024;
+
+    /**
+     * Stream di input dal client.
+     */
+    private final DataInputStream in;
+
+    /**
+     * Stream di output verso il client.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Contenuto della richiesta corrente.
+     */
+    private DataInputStream request = new DataInputStream(InputStream.nullInputStream());
+
+    /**
+     * Capacità massima in byte del buffer delle risposte conservato tra una risposta e la successiva.
+     */
+    private static final int RETAINED_BUFFER = 64 * 1024;
+
+    /**
+     * Contenuto della risposta corrente.
+     */
+    private ByteArrayOutputStream response = new ByteArrayOutputStream();
+
+    /**
+     * Stream di scrittura del contenuto della risposta corrente.
+     */
+    private DataOutputStream payload = new DataOutputStream(response);
+
+    /**
+     * Capacità raggiunta dal buffer delle risposte.
+     */
+    private volatile long retained = 0;
+
+    /**
+     * Dimensione in byte della risposta più grande inviata.
+     */
+    private volatile long largestResponse = 0;
+
+    /**
+     * Tipo della risposta corrente.
+     */
+    private byte responseType = OK;
+
+    /**
+     * Costruttore della classe BinaryChannel. Legge il messaggio di apertura del client e risponde
+     * con la versione scelta.
+     *
+     * @param input  Lo stream di input dal client.
+     * @param output Lo stream di output verso il client.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O o di messaggio di apertura non valido.
+     */
+    BinaryChannel(InputStream input, OutputStream output) throws IOException {
+        in = new DataInputStream(input);
+        out = new DataOutputStream(new BufferedOutputStream(output));
+        if (in.readInt() != MAGIC) throw new StreamCorruptedException("Messaggio di apertura non valido");
+        byte version = in.readByte();
+        if (version < 1) throw new StreamCorruptedException("Versione del protocollo non supportata: " + version);
+        out.writeInt(MAGIC);
+        out.writeByte(Math.min(version, VERSION));
+        out.flush();
+    }
+
+    /**
+     * Indica se i primi due byte inviati dal client sono quelli del protocollo binario.
+     *
+     * @param first  Il primo byte.
+     * @param second Il secondo byte.
+     * @return true se i byte coincidono con l'inizio di MAGIC.
+     */
+    static boolean matches(int first, int second) {
+        return first == (MAGIC >>> 24) && second == ((MAGIC >>> 16) & 0xFF);
+    }
+
+    public int readRequest() throws IOException {
+        byte type = in.readByte();
+        int length = in.readInt();
+        if (length < 0 || length > MAX_REQUEST)
+            throw new StreamCorruptedException("Lunghezza della richiesta non valida: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        request = new DataInputStream(new ByteArrayInputStream(bytes));
+        return type;
+    }
+
+    public String readString() throws IOException {
+        int length = request.readInt();
+        if (length < 0 || length > request.available())
+            throw new StreamCorruptedException("Lunghezza della stringa non valida: " + length);
+        byte[] bytes = new byte[length];
+        request.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int readInt() throws IOException {
+        return request.readInt();
+    }
+
+    public Map<String, String> readOptions() throws IOException {
+        int count = request.readInt();
+        if (count < 0) throw new StreamCorruptedException("Numero di opzioni non valido: " + count);
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < count; i++) options.put(readString(), readString());
+        return options;
+    }
+
+    public void writeResult(String result) throws IOException {
+        response.reset();
+        if ("OK".equals(result)) {
+            responseType = OK;
+        } else {
+            responseType = ERROR;
+            writeString(String.valueOf(result));
+        }
+    }
+
+    public void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        payload.writeInt(bytes.length);
+        payload.write(bytes);
+    }
+
+    public void writeInt(int value) throws IOException {
+        payload.writeInt(value);
+    }
+
+    public void endResponse() throws IOException {
+        out.writeByte(responseType);
+        out.writeInt(response.size());
+        response.writeTo(out);
+        out.flush();
+        largestResponse = Math.max(largestResponse, response.size());
+        if (response.size() > RETAINED_BUFFER) {
+            response = new ByteArrayOutputStream();
+            payload = new DataOutputStream(response);
+            retained = 0;
+        } else {
+            retained = Math.max(retained, response.size());
+            response.reset();
+        }
+    }
+
+    /**
+     * Restituisce la memoria trattenuta dal buffer delle risposte, che dopo una risposta più grande di
+     * RETAINED_BUFFER viene sostituito da un buffer vuoto.
+     *
+     * @return Il numero stimato di byte trattenuti.
+     */
+    public long getRetainedBytes() {
+        return retained;
+    }
+
+    public long getLargestResponse() {
+        return largestResponse;
+    }
+}
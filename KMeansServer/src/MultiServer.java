@@ -1,10 +1,20 @@
+import data.Data;
+import data.DataCache;
+import data.DataSnapshot;
+import data.SchemaStatistics;
+import database.ConnectionPool;
+import database.TableData;
+import mining.KMeansMiner;
+
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * La classe MultiServer rappresenta un server che accetta connessioni da client.
- * Ogni connessione viene gestita da un thread separato utilizzando la classe ServerOneClient.
+ * Ogni connessione viene gestita da una sessione ServerOneClient, eseguita secondo la configurazione di SessionScheduler.
  */
 public class MultiServer {
 
@@ -14,6 +24,11 @@ public class MultiServer {
 
     int PORT = 8080;
 
+    /**
+     * Numero massimo di connessioni in attesa di essere accettate dal sistema operativo.
+     */
+    private static int backlog = 1024;
+
     /**
      * Costruttore senza parametri che avvia il server sulla porta predefinita 8080.
      */
@@ -32,15 +47,33 @@ public class MultiServer {
         run();
     }
 
+    /**
+     * Imposta il numero massimo di connessioni in attesa di essere accettate dal sistema operativo.
+     *
+     * @param connections Numero di connessioni, almeno 1.
+     */
+    static void setBacklog(int connections) {
+        if (connections < 1) throw new IllegalArgumentException("Il backlog deve essere almeno 1");
+        backlog = connections;
+    }
+
     /**
      * Metodo che gestisce l'avvio del server, accettando connessioni dai client.
+     * Il ciclo di accettazione non esegue I/O verso i client: il socket viene consegnato subito a SessionScheduler,
+     * che esegue l'apertura del protocollo con il suo pool di apertura. Un errore su una singola connessione non interrompe il ciclo.
      */
     public void run() {
-        try {
-            ServerSocket serverSocket = new ServerSocket(PORT);
+        try (ServerSocket serverSocket = new ServerSocket(PORT, backlog)) {
             while (true) {
-                Socket socket = serverSocket.accept();
-                new ServerOneClient(socket);
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    if (serverSocket.isClosed()) throw e;
+                    System.out.println(e);
+                    continue;
+                }
+                SessionScheduler.start(new ServerOneClient(socket));
             }
         } catch (IOException e) {
             System.out.println(e);
@@ -50,10 +83,82 @@ public class MultiServer {
 
     /**
      * Metodo principale che crea un'istanza di MultiServer avviando il server.
+     * Gli argomenti hanno la forma chiave=valore:
+     * port (porta di ascolto, predefinita 8080), threads (thread predefiniti per il passo di assegnamento del K-Means)
+     * e fetch (dimensione di fetch della lettura delle tabelle: stream, predefinito, per la modalità streaming di MySQL,
+     * 0 per il comportamento predefinito del driver o il numero di righe per richiesta) e stats (calcolo di estremi
+     * e domini degli attributi: scan, predefinito, durante la lettura delle transazioni, aggregate con un'unica
+     * query aggregata o queries con una query per colonna), pool (connessioni massime per server, database e utente,
+     * predefinito 8), idle (millisecondi di inattività dopo i quali una connessione del pool viene chiusa),
+     * cache (budget in MB della cache condivisa dei dati caricati, predefinito 256, 0 per disattivarla) e check
+     * (controllo di attualità delle tabelle in cache: count, predefinito, checksum o none) e snapshot (uso delle
+     * copie su disco delle tabelle: off, predefinito, version se la versione della tabella non è cambiata, non
+     * ammesso con check=none, always se la copia esiste o un numero di secondi come età massima della copia),
+     * sessions (thread del pool delle sessioni dei client, ciascuno occupato da una sessione fino alla
+     * disconnessione, predefinito 256, 0 per un thread per sessione senza limite), queue (sessioni in attesa oltre le quali le nuove connessioni vengono rifiutate,
+     * predefinito 256), compute (core che gli addestramenti possono occupare contemporaneamente, predefinito
+     * il numero di core), handshake (millisecondi entro cui un client deve aprire il suo stream, predefinito 5000),
+     * handshakes (connessioni aperte contemporaneamente e connessioni in attesa di apertura, oltre le quali le nuove
+     * connessioni vengono chiuse, predefinito 64) e backlog (connessioni in attesa di essere accettate, predefinito 1024).
      *
-     * @param args Argomenti della riga di comando (non utilizzati in questo caso).
+     * @param args Argomenti della riga di comando nella forma chiave=valore.
      */
     public static void main(String[] args) {
-        new MultiServer();
+        Map<String, String> options = parseOptions(args);
+        if (options.containsKey("threads"))
+            KMeansMiner.setDefaultParallelism(Integer.parseInt(options.get("threads")));
+        if (options.containsKey("fetch"))
+            TableData.setFetchSize(options.get("fetch").equals("stream") ? TableData.STREAMING : Integer.parseInt(options.get("fetch")));
+        if (options.containsKey("stats"))
+            Data.setSchemaStatistics(SchemaStatistics.parse(options.get("stats")));
+        if (options.containsKey("pool"))
+            ConnectionPool.setMaxSize(Integer.parseInt(options.get("pool")));
+        if (options.containsKey("idle"))
+            ConnectionPool.setIdleTimeout(Long.parseLong(options.get("idle")));
+        if (options.containsKey("cache"))
+            DataCache.setBudget(Long.parseLong(options.get("cache")) * 1024 * 1024);
+        if (options.containsKey("check"))
+            DataCache.setValidation(DataCache.Validation.valueOf(options.get("check").toUpperCase()));
+        if (options.containsKey("snapshot"))
+            switch (options.get("snapshot")) {
+                case "off" -> DataSnapshot.setPolicy(DataSnapshot.Policy.OFF, 0);
+                case "version" -> DataSnapshot.setPolicy(DataSnapshot.Policy.VERSION, 0);
+                case "always" -> DataSnapshot.setPolicy(DataSnapshot.Policy.ALWAYS, 0);
+                default -> DataSnapshot.setPolicy(DataSnapshot.Policy.MAX_AGE, Long.parseLong(options.get("snapshot")) * 1000);
+            }
+        if (DataSnapshot.getPolicy() == DataSnapshot.Policy.VERSION && DataCache.getValidation() == DataCache.Validation.NONE)
+            throw new IllegalArgumentException("snapshot=version richiede check=count o check=checksum: con check=none la versione delle tabelle non viene letta");
+        if (options.containsKey("sessions") || options.containsKey("queue"))
+            SessionScheduler.setSessions(Integer.parseInt(options.getOrDefault("sessions", String.valueOf(SessionScheduler.DEFAULT_SESSIONS))),
+                    Integer.parseInt(options.getOrDefault("queue", String.valueOf(SessionScheduler.DEFAULT_QUEUE))));
+        if (options.containsKey("compute"))
+            SessionScheduler.setCompute(Integer.parseInt(options.get("compute")));
+        if (options.containsKey("handshake"))
+            ServerOneClient.setHandshakeTimeout(Integer.parseInt(options.get("handshake")));
+        if (options.containsKey("handshakes"))
+            SessionScheduler.setHandshakes(Integer.parseInt(options.get("handshakes")), Integer.parseInt(options.get("handshakes")));
+        if (options.containsKey("backlog"))
+            setBacklog(Integer.parseInt(options.get("backlog")));
+        if (options.containsKey("port"))
+            new MultiServer(Integer.parseInt(options.get("port")));
+        else
+            new MultiServer();
+    }
+
+    /**
+     * Converte gli argomenti della riga di comando nella forma chiave=valore in una mappa.
+     *
+     * @param args Argomenti della riga di comando.
+     * @return La mappa delle opzioni.
+     * @throws IllegalArgumentException Eccezione lanciata se un argomento non è nella forma chiave=valore.
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Argomento non valido: " + arg + " (atteso chiave=valore)");
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
     }
 }
@@ -0,0 +1,150 @@
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Map;
+
+/**
+ * La classe ObjectChannel implementa il protocollo originale, in cui codici, parametri e risultati sono
+ * oggetti Java serializzati con ObjectOutputStream.
+ * Al termine di ogni risposta lo stream viene azzerato con reset(): altrimenti la tabella degli oggetti già
+ * inviati, e quella corrispondente nello stream del client, manterrebbero raggiungibili tutti i risultati
+ * della sessione fino alla disconnessione.
+ */
+class ObjectChannel implements SessionChannel {
+
+    /**
+     * La classe CountingOutputStream conta i byte scritti nello stream sottostante.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        /**
+         * Numero di byte scritti.
+         */
+        long count = 0;
+
+        /**
+         * Costruttore della classe CountingOutputStream.
+         *
+         * @param out Lo stream sottostante.
+         */
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * Stream di output verso il client con il conteggio dei byte inviati.
+     */
+    private final CountingOutputStream counter;
+
+    /**
+     * Byte inviati fino alla fine della risposta precedente.
+     */
+    private long responseStart = 0;
+
+    /**
+     * Dimensione in byte della risposta più grande inviata.
+     */
+    private volatile long largestResponse = 0;
+
+    /**
+     * Stream di input dal client.
+     */
+    private final ObjectInputStream in;
+
+    /**
+     * Stream di output verso il client.
+     */
+    private final ObjectOutputStream out;
+
+    /**
+     * Costruttore della classe ObjectChannel. Invia l'intestazione dello stream di output e legge
+     * quella dello stream del client.
+     *
+     * @param input  Lo stream di input dal client.
+     * @param output Lo stream di output verso il client.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O o di intestazione non valida.
+     */
+    ObjectChannel(InputStream input, OutputStream output) throws IOException {
+        counter = new CountingOutputStream(output);
+        out = new ObjectOutputStream(counter);
+        in = new ObjectInputStream(input);
+    }
+
+    /**
+     * Legge un oggetto del tipo atteso.
+     *
+     * @param type Il tipo atteso.
+     * @param <T>  Il tipo atteso.
+     * @return L'oggetto letto.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O o se l'oggetto non è del tipo atteso.
+     */
+    private <T> T read(Class<T> type) throws IOException {
+        try {
+            Object value = in.readObject();
+            if (!type.isInstance(value))
+                throw new StreamCorruptedException("Atteso " + type.getSimpleName() + ", ricevuto " + value);
+            return type.cast(value);
+        } catch (ClassNotFoundException e) {
+            throw new StreamCorruptedException("Classe sconosciuta: " + e.getMessage());
+        }
+    }
+
+    public int readRequest() throws IOException {
+        return read(Integer.class);
+    }
+
+    public String readString() throws IOException {
+        return read(String.class);
+    }
+
+    public int readInt() throws IOException {
+        return read(Integer.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, String> readOptions() throws IOException {
+        return (Map<String, String>) read(Map.class);
+    }
+
+    public void writeResult(String result) throws IOException {
+        out.writeObject(result);
+    }
+
+    public void writeString(String value) throws IOException {
+        out.writeObject(value);
+    }
+
+    public void writeInt(int value) throws IOException {
+        out.writeObject(value);
+    }
+
+    public void endResponse() throws IOException {
+        out.reset();
+        out.flush();
+        largestResponse = Math.max(largestResponse, counter.count - responseStart);
+        responseStart = counter.count;
+    }
+
+    public long getRetainedBytes() {
+        return 0; // la tabella degli oggetti inviati viene svuotata a ogni risposta
+    }
+
+    public long getLargestResponse() {
+        return largestResponse;
+    }
+}
@@ -1,31 +1,52 @@
+import data.CsvSource;
 import data.Data;
+import data.DataCache;
+import database.ConnectionPool;
+import mining.Algorithm;
 import mining.KMeansMiner;
+import mining.Seeding;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * La classe ServerOneClient rappresenta un thread del server che gestisce una connessione con un singolo client.
+ * La classe ServerOneClient rappresenta la sessione del server che gestisce una connessione con un singolo client.
  * È responsabile di ricevere richieste dal client, eseguire operazioni di clustering K-Means sui dati e inviare risposte al client.
+ * La sessione viene eseguita dal thread assegnato da SessionScheduler, che esegue anche gli addestramenti
+ * dopo averne riservato i core.
  */
-public class ServerOneClient extends Thread {
+public class ServerOneClient implements Runnable {
 
     /**
-     * Socket per la comunicazione con il client.
+     * Tempo massimo in millisecondi entro cui il client deve inviare l'intestazione del suo stream.
      */
-    Socket socket;
+    private static int handshakeTimeout = 5_000;
+
+    /**
+     * Sessioni aperte.
+     */
+    private static final Set<ServerOneClient> sessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Numero massimo di esempi per pagina dei cluster.
+     */
+    private static final int MAX_PAGE = 10_000;
 
     /**
-     * Stream di input dal client.
+     * Socket per la comunicazione con il client.
      */
-    ObjectInputStream in;
+    Socket socket;
 
     /**
-     * Stream di output verso il client.
+     * Protocollo di comunicazione con il client, scelto all'apertura della connessione. È volatile perché
+     * viene letto anche dal thread che risponde a una richiesta di stato del server.
      */
-    ObjectOutputStream out;
+    volatile SessionChannel channel;
 
     /**
      * Oggetto KMeansMiner per eseguire l'algoritmo di clustering K-Means.
@@ -34,43 +55,137 @@ public class ServerOneClient extends Thread {
 
 
     /**
-     * Oggetto Data che contiene le informazioni sui dati.
+     * Oggetto Data che contiene le informazioni sui dati. È volatile per lo stesso motivo di channel.
+     */
+    volatile Data data;
+
+    /**
+     * Oggetto Data su cui è stato addestrato kmeans, null se kmeans non è stato addestrato in questa sessione.
      */
-    Data data;
+    Data trainedData;
 
     /**
-     * Costruttore della classe ServerOneClient.
+     * Costruttore della classe ServerOneClient. Gli stream vengono creati all'avvio della sessione,
+     * così che il thread che accetta le connessioni non attenda mai il client.
      *
      * @param s Socket per la comunicazione con il client.
-     * @throws IOException Eccezione lanciata in caso di errori di I/O.
      */
-    public ServerOneClient(Socket s) throws IOException {
+    public ServerOneClient(Socket s) {
         socket = s;
-        out = new ObjectOutputStream(socket.getOutputStream());
-        in = new ObjectInputStream(socket.getInputStream());
-        start();
+    }
+
+    /**
+     * Imposta il tempo massimo entro cui un nuovo client deve inviare l'intestazione del suo stream.
+     *
+     * @param millis Tempo in millisecondi, almeno 1.
+     */
+    static void setHandshakeTimeout(int millis) {
+        if (millis < 1) throw new IllegalArgumentException("Il tempo massimo di handshake deve essere almeno 1 ms");
+        handshakeTimeout = millis;
+    }
+
+    /**
+     * Restituisce la misura della memoria trattenuta da ciascuna sessione aperta: i dati caricati (che possono
+     * essere condivisi con altre sessioni tramite la DataCache), il buffer del canale e la risposta più grande
+     * inviata, che è stata tenuta in memoria per intero durante l'invio. Viene calcolata solo su richiesta
+     * dello stato del server.
+     *
+     * @return Una riga per sessione aperta, seguita dal totale dei buffer dei canali.
+     */
+    static String getMemoryMetrics() {
+        StringBuilder str = new StringBuilder();
+        long retained = 0;
+        for (ServerOneClient session : sessions) {
+            Data loaded = session.data;
+            SessionChannel current = session.channel;
+            str.append("Sessione ").append(session.socket.getRemoteSocketAddress())
+                    .append(": dati=").append(loaded != null ? loaded.estimateSize() : 0).append(" byte");
+            if (current != null) {
+                retained += current.getRetainedBytes();
+                str.append(" canale=").append(current.getRetainedBytes()).append(" byte")
+                        .append(" risposta massima=").append(current.getLargestResponse()).append(" byte");
+            }
+            str.append("\n");
+        }
+        return str.append("Sessioni aperte: ").append(sessions.size()).append(" buffer dei canali=").append(retained)
+                .append(" byte").toString();
+    }
+
+    /**
+     * Sceglie il protocollo in base ai primi byte inviati dal client, che sono l'intestazione di uno stream
+     * serializzato per il protocollo originale o il messaggio di apertura del protocollo binario, e crea il
+     * canale corrispondente. L'apertura è limitata a handshakeTimeout millisecondi; le letture successive
+     * non hanno limite di tempo.
+     *
+     * @throws IOException Eccezione lanciata in caso di errori di I/O o se il client non completa l'apertura in tempo.
+     */
+    private void handshake() throws IOException {
+        socket.setSoTimeout(handshakeTimeout);
+        BufferedInputStream input = new BufferedInputStream(socket.getInputStream());
+        input.mark(2);
+        int first = input.read();
+        int second = input.read();
+        input.reset();
+        if (BinaryChannel.matches(first, second))
+            channel = new BinaryChannel(input, socket.getOutputStream());
+        else
+            channel = new ObjectChannel(input, socket.getOutputStream());
+        socket.setSoTimeout(0);
     }
 
     /**
      * Gestisce la ricezione e la memorizzazione dei dati della tabella dal database fornito dal client.
+     * Come per i file CSV, al client viene inviato il riepilogo dei dati e non l'elenco delle righe.
      */
     private void storeTableFromDb() {
         String result = "OK";
         try {
-            String server = (String) in.readObject();
-            String db = (String) in.readObject();
-            String table = (String) in.readObject();
-            String user = (String) in.readObject();
-            String pass = (String) in.readObject();
+            String server = channel.readString();
+            String db = channel.readString();
+            String table = channel.readString();
+            String user = channel.readString();
+            String pass = channel.readString();
             System.out.println(db+" "+table);
-            data = new Data(server, db, table, user, pass);
+            data = DataCache.get(server, db, table, user, pass);
+            System.out.print(ConnectionPool.getMetrics());
+            System.out.println(DataCache.getStatistics());
         } catch (Exception e) {
             result = e.getMessage();
             e.printStackTrace();
         }
         try {
-            out.writeObject(result);
-            if (result.equals("OK")) out.writeObject(data.toString());
+            channel.writeResult(result);
+            if (result.equals("OK")) channel.writeString(data.summary());
+            channel.endResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gestisce il caricamento dei dati da un file CSV della cartella dei dati del server, indicato dal client
+     * insieme al carattere separatore. Al client viene inviato il riepilogo dei dati (righe e schema), non
+     * l'elenco delle righe, che per file grandi produrrebbe una risposta enorme.
+     */
+    private void storeTableFromFile() {
+        String result = "OK";
+        try {
+            String fileName = channel.readString();
+            String separator = channel.readString();
+            if (fileName.contains("/") || fileName.contains("\\") || fileName.contains(".."))
+                throw new IllegalArgumentException("Nome di file non valido: " + fileName);
+            if (separator.length() != 1)
+                throw new IllegalArgumentException("Il separatore deve essere un singolo carattere");
+            System.out.println(fileName);
+            data = SessionScheduler.readCsv(CsvSource.DIRECTORY + fileName, separator.charAt(0));
+        } catch (Exception e) {
+            result = e.getMessage();
+            e.printStackTrace();
+        }
+        try {
+            channel.writeResult(result);
+            if (result.equals("OK")) channel.writeString(data.summary());
+            channel.endResponse();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -78,28 +193,112 @@ public class ServerOneClient extends Thread {
 
     /**
      * Gestisce l'esecuzione dell'algoritmo di clustering K-Means sui dati della tabella dal database.
+     *
+     * @param withOptions true se dopo il numero di cluster il client invia una mappa di opzioni di apprendimento.
+     * @param summary     true per inviare solo il riepilogo dei cluster, i cui esempi vengono poi richiesti
+     *                    a pagine, false per inviare l'intero insieme di cluster con tutti gli esempi.
      */
-    private void learningFromDbTable() {
+    private void learningFromDbTable(boolean withOptions, boolean summary) {
         String result = "OK";
         int k, numIter = 0;
         try {
-            k = (int) in.readObject();
+            k = channel.readInt();
+            Map<String, String> options = withOptions ? channel.readOptions() : Map.of();
+            trainedData = null;
             kmeans = new KMeansMiner(k);
-            numIter = kmeans.kmeans(data);
+            configure(kmeans, options);
+            numIter = SessionScheduler.train(kmeans, data);
+            trainedData = data;
+        } catch (Exception e) {
+            result = e.getMessage();
+            e.printStackTrace();
+        }
+        try {
+            channel.writeResult(result);
+            if (result.equals("OK")) {
+                channel.writeInt(numIter);
+                channel.writeString(summary ? kmeans.getC().summary(data) : kmeans.getC().toString(data));
+                if (withOptions) channel.writeString(kmeans.getStatistics());
+            }
+            channel.endResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gestisce la richiesta di una pagina di esempi di un cluster dell'ultimo addestramento: il client invia
+     * la posizione del cluster, il cursore (0 per la prima pagina) e il numero massimo di esempi, e riceve
+     * gli esempi seguiti dal cursore della pagina successiva (-1 se gli esempi sono terminati).
+     */
+    private void membersPage() {
+        String result = "OK";
+        StringBuilder page = new StringBuilder();
+        int next = -1;
+        try {
+            int cluster = channel.readInt();
+            int cursor = channel.readInt();
+            int limit = channel.readInt();
+            if (trainedData == null || trainedData != data)
+                throw new IllegalStateException("Nessun addestramento sui dati correnti");
+            next = kmeans.getC().appendMembers(data, cluster, cursor, Math.min(limit, MAX_PAGE), page);
         } catch (Exception e) {
             result = e.getMessage();
             e.printStackTrace();
         }
         try {
-            out.writeObject(result);
+            channel.writeResult(result);
             if (result.equals("OK")) {
-                out.writeObject(numIter);
-                out.writeObject(kmeans.getC().toString(data));
+                channel.writeString(page.toString());
+                channel.writeInt(next);
             }
+            channel.endResponse();
         } catch (IOException e) {
             e.printStackTrace();
         }
+    }
 
+    /**
+     * Gestisce la richiesta dello stato del server: aperture delle connessioni, sessioni e addestramenti in
+     * corso e in coda, seguiti dalla memoria trattenuta da ciascuna sessione aperta.
+     */
+    private void serverStatus() {
+        try {
+            channel.writeResult("OK");
+            channel.writeString(SessionScheduler.getMetrics() + "\n" + getMemoryMetrics());
+            channel.endResponse();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Applica a un KMeansMiner le opzioni di apprendimento inviate dal client, nella forma chiave=valore.
+     *
+     * @param miner   Il KMeansMiner da configurare.
+     * @param options Le opzioni di apprendimento.
+     * @throws IllegalArgumentException Eccezione lanciata se un'opzione è sconosciuta o ha un valore non valido.
+     */
+    private void configure(KMeansMiner miner, Map<String, String> options) {
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            switch (option.getKey()) {
+                case "threads" -> miner.setParallelism(Integer.parseInt(option.getValue()));
+                case "algorithm" -> miner.setAlgorithm(Algorithm.valueOf(option.getValue().toUpperCase()));
+                case "seed" -> miner.setSeed(Long.parseLong(option.getValue()));
+                case "seeding" -> miner.setSeeding(Seeding.parse(option.getValue()));
+                case "restarts" -> miner.setRestarts(Integer.parseInt(option.getValue()));
+                case "iterations" -> miner.setMaxIterations(Integer.parseInt(option.getValue()));
+                case "moved" -> miner.setMovedTolerance(Double.parseDouble(option.getValue()));
+                case "shift" -> miner.setShiftTolerance(Double.parseDouble(option.getValue()));
+                case "batch" -> miner.setMiniBatch(Integer.parseInt(option.getValue()),
+                        options.containsKey("steps") ? Integer.parseInt(options.get("steps")) : 100);
+                case "steps" -> {
+                    if (!options.containsKey("batch"))
+                        throw new IllegalArgumentException("L'opzione steps richiede l'opzione batch");
+                }
+                default -> throw new IllegalArgumentException("Opzione sconosciuta: " + option.getKey());
+            }
+        }
     }
 
     /**
@@ -108,14 +307,15 @@ public class ServerOneClient extends Thread {
     private void storeClusterInFile() {
         String result = "OK";
         try {
-            String fileName = (String) in.readObject();
+            String fileName = channel.readString();
             kmeans.salva("KMeansServer\\Salvataggi\\" + fileName + ".dat");//ClientServer_K-Means-main/KMeansServer/Salvataggi/MapDBplaytennis3.dat
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             result = e.getMessage();
             e.printStackTrace();
         }
         try {
-            out.writeObject(result);
+            channel.writeResult(result);
+            channel.endResponse();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -127,35 +327,42 @@ public class ServerOneClient extends Thread {
     private void learningFromFile() {
         String result = "OK";
         try {
-            String fileName = (String) in.readObject();
+            String fileName = channel.readString();
+            trainedData = null;
             kmeans = new KMeansMiner("KMeansServer\\Salvataggi\\" + fileName + ".dat");
         } catch (IOException | ClassNotFoundException e) {
             result = e.getMessage();
             e.printStackTrace();
         }
         try {
-            out.writeObject(result);
+            channel.writeResult(result);
             if (result.equals("OK")) {
-                out.writeObject(kmeans.getC().toString());
+                channel.writeString(kmeans.getC().toString());
             }
+            channel.endResponse();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Override del metodo run della classe Thread.
-     * Gestisce le richieste del client e esegue le operazioni corrispondenti.
+     * Gestisce le richieste del client e esegue le operazioni corrispondenti, chiudendo la connessione al termine.
      */
     public void run() {
+        sessions.add(this);
         try {
             while (true) {
-                int request = (Integer) in.readObject();
+                int request = channel.readRequest();
                 switch (request) {
                     case 0 -> storeTableFromDb();
-                    case 1 -> learningFromDbTable();
+                    case 1 -> learningFromDbTable(false, false);
                     case 2 -> storeClusterInFile();
                     case 3 -> learningFromFile();
+                    case 5 -> learningFromDbTable(true, false);
+                    case 6 -> storeTableFromFile();
+                    case 7 -> learningFromDbTable(true, true);
+                    case 8 -> membersPage();
+                    case 9 -> serverStatus();
                     default -> {
                         return;
                     }
@@ -163,6 +370,39 @@ public class ServerOneClient extends Thread {
             }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            sessions.remove(this);
+            close();
+        }
+    }
+
+    /**
+     * Esegue l'apertura del protocollo. In caso di errore o se il client non completa l'apertura in tempo
+     * la connessione viene chiusa.
+     *
+     * @return true se il canale è stato aperto, false se la connessione è stata chiusa.
+     */
+    boolean open() {
+        try {
+            handshake();
+            return true;
+        } catch (SocketTimeoutException e) {
+            System.out.println("Handshake non completato entro " + handshakeTimeout + " ms: " + socket.getRemoteSocketAddress());
+        } catch (IOException e) {
+            System.out.println("Handshake non riuscito con " + socket.getRemoteSocketAddress() + ": " + e);
+        }
+        close();
+        return false;
+    }
+
+    /**
+     * Chiude la connessione con il client.
+     */
+    void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
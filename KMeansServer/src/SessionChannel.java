@@ -0,0 +1,90 @@
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * L'interfaccia SessionChannel rappresenta il protocollo con cui una sessione riceve le richieste del client
+ * e invia le risposte. Una richiesta è formata da un codice seguito dai parametri; una risposta è formata
+ * dall'esito seguito, se positivo, dai risultati. Le implementazioni sono ObjectChannel, per il protocollo
+ * originale basato sulla serializzazione Java, e BinaryChannel, per il protocollo binario a messaggi.
+ */
+interface SessionChannel {
+
+    /**
+     * Legge il codice della richiesta successiva.
+     *
+     * @return Il codice della richiesta.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O o di richiesta non valida.
+     */
+    int readRequest() throws IOException;
+
+    /**
+     * Legge un parametro di tipo stringa della richiesta corrente.
+     *
+     * @return Il parametro.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O o di parametro non valido.
+     */
+    String readString() throws IOException;
+
+    /**
+     * Legge un parametro intero della richiesta corrente.
+     *
+     * @return Il parametro.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O o di parametro non valido.
+     */
+    int readInt() throws IOException;
+
+    /**
+     * Legge un parametro della richiesta corrente formato da coppie chiave=valore.
+     *
+     * @return La mappa delle coppie.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O o di parametro non valido.
+     */
+    Map<String, String> readOptions() throws IOException;
+
+    /**
+     * Inizia la risposta alla richiesta corrente con il suo esito.
+     *
+     * @param result "OK" in caso di successo, altrimenti il messaggio di errore.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O.
+     */
+    void writeResult(String result) throws IOException;
+
+    /**
+     * Aggiunge un risultato di tipo stringa alla risposta corrente.
+     *
+     * @param value Il risultato.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O.
+     */
+    void writeString(String value) throws IOException;
+
+    /**
+     * Aggiunge un risultato intero alla risposta corrente.
+     *
+     * @param value Il risultato.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O.
+     */
+    void writeInt(int value) throws IOException;
+
+    /**
+     * Conclude la risposta corrente e la invia al client.
+     *
+     * @throws IOException Eccezione lanciata in caso di errori di I/O.
+     */
+    void endResponse() throws IOException;
+
+    /**
+     * Restituisce la memoria trattenuta dal canale tra una risposta e la successiva. Può essere invocato
+     * da un thread diverso da quello della sessione.
+     *
+     * @return Il numero stimato di byte trattenuti.
+     */
+    long getRetainedBytes();
+
+    /**
+     * Restituisce la dimensione della risposta più grande inviata, che il canale ha dovuto tenere in memoria
+     * per intero durante l'invio.
+     *
+     * @return Il numero di byte della risposta più grande.
+     */
+    long getLargestResponse();
+}
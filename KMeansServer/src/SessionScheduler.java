@@ -0,0 +1,266 @@
+import data.CsvSource;
+import data.Data;
+import data.OutOfRangeSampleSize;
+import database.EmptySetException;
+import mining.KMeansMiner;
+
+import java.io.IOException;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * La classe SessionScheduler stabilisce su quali thread vengono eseguite le sessioni dei client e quanti core
+ * possono occupare gli addestramenti del K-Means.
+ * L'apertura del protocollo di ogni connessione viene eseguita da un pool di apertura con un numero fisso di
+ * thread e una coda limitata: oltre questo limite le nuove connessioni vengono chiuse subito, così che i client
+ * che si connettono senza inviare nulla non possano far crescere il numero di thread.
+ * Le sessioni aperte, che passano la maggior parte del tempo in attesa di richieste, vengono eseguite da un
+ * pool con un numero massimo di thread e una coda di attesa limitata, oltre la quale le nuove connessioni
+ * vengono rifiutate: ogni sessione occupa un thread del pool dalla fine dell'apertura del protocollo fino alla
+ * disconnessione. La modalità con un thread per sessione, senza limite, va scelta esplicitamente.
+ * Gli addestramenti e le letture dei file CSV condividono un budget di core: un'operazione con parallelism
+ * thread riserva altrettanti core (al più l'intero budget) prima di iniziare e li restituisce al termine, così
+ * che il numero di core occupati non superi il budget indipendentemente dal numero di sessioni e dai thread
+ * richiesti da ciascuna.
+ */
+class SessionScheduler {
+
+    /**
+     * Numero predefinito di thread del pool delle sessioni.
+     */
+    static final int DEFAULT_SESSIONS = 256;
+
+    /**
+     * Capacità predefinita della coda delle sessioni in attesa.
+     */
+    static final int DEFAULT_QUEUE = 256;
+
+    /**
+     * Pool delle sessioni, null nella modalità con un thread per sessione.
+     */
+    private static ThreadPoolExecutor sessions = newPool("session", DEFAULT_SESSIONS, DEFAULT_QUEUE);
+
+    /**
+     * Pool che esegue l'apertura del protocollo delle nuove connessioni.
+     */
+    private static ThreadPoolExecutor handshakes = newPool("handshake", 64, 64);
+
+    /**
+     * Numero di core che gli addestramenti possono occupare contemporaneamente.
+     */
+    private static int budget = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Core liberi del budget, assegnati nell'ordine delle richieste.
+     */
+    private static Semaphore cores = new Semaphore(budget, true);
+
+    /**
+     * Numero di addestramenti in esecuzione.
+     */
+    private static final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * Numero di addestramenti completati.
+     */
+    private static final AtomicLong completed = new AtomicLong();
+
+    /**
+     * Numero di sessioni in esecuzione nella modalità con un thread per sessione.
+     */
+    private static final AtomicInteger unpooled = new AtomicInteger();
+
+    /**
+     * Numero di sessioni avviate nella modalità con un thread per sessione, usato per il nome dei thread.
+     */
+    private static final AtomicLong started = new AtomicLong();
+
+    /**
+     * Numero di connessioni chiuse perché il pool di apertura e la sua coda erano pieni.
+     */
+    private static final AtomicLong refused = new AtomicLong();
+
+    /**
+     * Numero di connessioni rifiutate perché la coda delle sessioni era piena.
+     */
+    private static final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Crea un pool con un numero fisso di thread e una coda di attesa della capacità specificata.
+     *
+     * @param name     Prefisso del nome dei thread.
+     * @param threads  Numero di thread.
+     * @param capacity Capacità della coda di attesa.
+     * @return Il pool.
+     */
+    private static ThreadPoolExecutor newPool(String name, int threads, int capacity) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> new Thread(r, name + "-" + count.incrementAndGet());
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(capacity), factory);
+    }
+
+    /**
+     * Imposta l'esecuzione delle sessioni: le sessioni vengono eseguite da un pool di threads thread e quelle
+     * in eccesso attendono in una coda di al più queue posti; con threads pari a 0 ogni sessione ha invece un
+     * proprio thread, senza limite al numero di sessioni.
+     * Va invocato all'avvio del server, prima di accettare connessioni.
+     *
+     * @param threads Numero di thread del pool delle sessioni, 0 per un thread per sessione.
+     * @param queue   Capacità della coda delle sessioni in attesa.
+     */
+    static synchronized void setSessions(int threads, int queue) {
+        if (threads < 0) throw new IllegalArgumentException("Il numero di thread delle sessioni non può essere negativo");
+        if (queue < 1) throw new IllegalArgumentException("La coda delle sessioni deve avere almeno un posto");
+        if (sessions != null) sessions.shutdown();
+        sessions = threads == 0 ? null : newPool("session", threads, queue);
+    }
+
+    /**
+     * Imposta il pool di apertura del protocollo: al più threads connessioni vengono aperte contemporaneamente
+     * e al più queue attendono un thread libero; le connessioni oltre questo limite vengono chiuse.
+     * Va invocato all'avvio del server, prima di accettare connessioni.
+     *
+     * @param threads Numero di thread del pool di apertura, almeno 1.
+     * @param queue   Capacità della coda delle connessioni in attesa di apertura, almeno 1.
+     */
+    static synchronized void setHandshakes(int threads, int queue) {
+        if (threads < 1) throw new IllegalArgumentException("Il pool di apertura deve avere almeno un thread");
+        if (queue < 1) throw new IllegalArgumentException("La coda di apertura deve avere almeno un posto");
+        handshakes.shutdown();
+        handshakes = newPool("handshake", threads, queue);
+    }
+
+    /**
+     * Imposta il numero di core che gli addestramenti possono occupare contemporaneamente.
+     * Va invocato all'avvio del server, prima di accettare connessioni.
+     *
+     * @param threads Numero di core, almeno 1.
+     */
+    static synchronized void setCompute(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Il budget di core degli addestramenti deve essere almeno 1");
+        budget = threads;
+        cores = new Semaphore(threads, true);
+    }
+
+    /**
+     * Avvia la sessione di un client. L'apertura del protocollo, che attende i primi byte del client, viene
+     * eseguita dal pool di apertura, così che un client che non invia nulla occupi al più un thread di quel pool
+     * per il tempo massimo di apertura; se il pool e la sua coda sono pieni la connessione viene chiusa subito.
+     * Solo una sessione aperta viene consegnata al pool delle sessioni, o a un nuovo thread nella modalità con un
+     * thread per sessione. Se la coda delle sessioni è piena la connessione viene chiusa.
+     *
+     * @param session La sessione da eseguire.
+     */
+    static void start(ServerOneClient session) {
+        try {
+            handshakes.execute(() -> {
+                if (session.open()) dispatch(session);
+            });
+        } catch (RejectedExecutionException e) {
+            refused.incrementAndGet();
+            session.close();
+        }
+    }
+
+    /**
+     * Consegna una sessione aperta al pool delle sessioni o, nella modalità con un thread per sessione, a un
+     * nuovo thread.
+     *
+     * @param session La sessione aperta.
+     */
+    private static void dispatch(ServerOneClient session) {
+        ThreadPoolExecutor pool = sessions;
+        if (pool == null) {
+            unpooled.incrementAndGet();
+            new Thread(() -> {
+                try {
+                    session.run();
+                } finally {
+                    unpooled.decrementAndGet();
+                }
+            }, "session-" + started.incrementAndGet()).start();
+            return;
+        }
+        try {
+            pool.execute(session);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            session.close();
+        }
+    }
+
+    /**
+     * Esegue l'addestramento sul thread della sessione dopo averne riservato i core: il parallelismo del
+     * KMeansMiner viene ridotto al budget se lo supera e, se i core liberi non bastano, l'addestramento
+     * attende in coda che gli addestramenti in corso li restituiscano.
+     *
+     * @param miner Il KMeansMiner da addestrare.
+     * @param data  I dati di addestramento.
+     * @return Il numero di iterazioni restituito da KMeansMiner.kmeans.
+     * @throws OutOfRangeSampleSize Eccezione lanciata se il numero di cluster non è valido per i dati.
+     * @throws InterruptedException Eccezione lanciata se l'attesa viene interrotta.
+     */
+    static int train(KMeansMiner miner, Data data) throws OutOfRangeSampleSize, InterruptedException {
+        Semaphore free = cores;
+        int threads = Math.min(miner.getParallelism(), budget);
+        miner.setParallelism(threads);
+        free.acquire(threads);
+        active.incrementAndGet();
+        try {
+            return miner.kmeans(data);
+        } finally {
+            active.decrementAndGet();
+            completed.incrementAndGet();
+            free.release(threads);
+        }
+    }
+
+    /**
+     * Legge un file CSV sul thread della sessione con un thread per core del budget, dopo aver riservato i core
+     * come per un addestramento: la lettura attende che gli addestramenti in corso restituiscano i loro core e
+     * li occupa tutti fino al termine.
+     *
+     * @param fileName  Il percorso del file.
+     * @param separator Il carattere separatore dei campi.
+     * @return L'oggetto Data con le righe del file.
+     * @throws IOException          Eccezione lanciata in caso di errori di I/O o di righe malformate.
+     * @throws EmptySetException    Eccezione lanciata se il file non contiene righe di dati.
+     * @throws InterruptedException Eccezione lanciata se l'attesa viene interrotta.
+     */
+    static Data readCsv(String fileName, char separator) throws IOException, EmptySetException, InterruptedException {
+        Semaphore free = cores;
+        int threads = budget;
+        free.acquire(threads);
+        try {
+            return CsvSource.read(fileName, separator, threads);
+        } finally {
+            free.release(threads);
+        }
+    }
+
+    /**
+     * Restituisce una descrizione dello stato delle aperture, delle sessioni e degli addestramenti, inviata ai
+     * client che la richiedono.
+     *
+     * @return Lo stato in forma di stringa.
+     */
+    static String getMetrics() {
+        ThreadPoolExecutor pool = sessions, opening = handshakes;
+        String str = "Aperture: attive=" + opening.getActiveCount() + "/" + opening.getMaximumPoolSize()
+                + " in coda=" + opening.getQueue().size() + " rifiutate=" + refused.get() + "\n" + (pool == null
+                ? "Sessioni: attive=" + unpooled.get() + " (un thread per sessione)"
+                : "Sessioni: attive=" + pool.getActiveCount() + "/" + pool.getMaximumPoolSize()
+                + " in coda=" + pool.getQueue().size() + " rifiutate=" + rejected.get());
+        Semaphore free = cores;
+        return str + "\nAddestramenti: attivi=" + active.get() + " in coda=" + free.getQueueLength()
+                + " core occupati=" + (budget - free.availablePermits()) + "/" + budget + " completati=" + completed.get();
+    }
+}
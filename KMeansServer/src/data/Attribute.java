@@ -9,6 +9,8 @@ import java.io.Serializable;
  * Implementa l'interfaccia Serializable per supportare la serializzazione degli oggetti.
  */
 public abstract class Attribute implements Serializable {
+  /** numero di versione della forma serializzata, quello calcolato per la versione originale della classe*/
+  private static final long serialVersionUID = -5912594735815997580L;
   /** nome simbolico dell'attributo*/
   private final String name;
   /** indice dell'attributo*/
@@ -0,0 +1,145 @@
+package data;
+
+/**
+ * La classe ClusterAccumulator mantiene, per ciascun cluster, le statistiche sufficienti a calcolarne il centroide:
+ * la somma dei valori di ciascun attributo continuo e l'istogramma dei codici di ciascun attributo discreto.
+ * Le statistiche vengono aggiornate in modo incrementale solo quando una transazione entra o esce da un cluster,
+ * per cui l'aggiornamento dei centroidi costa O(k·m) anziché una nuova scansione delle transazioni.
+ */
+public class ClusterAccumulator {
+
+  /**
+   * Oggetto Data da cui leggere le transazioni.
+   */
+  private final Data data;
+
+  /**
+   * Numero di cluster.
+   */
+  private final int k;
+
+  /**
+   * Numero di transazioni accumulate in ciascun cluster.
+   */
+  private final int[] counts;
+
+  /**
+   * Somme per cluster degli attributi continui: sums[j][c] è la somma dell'attributo j nel cluster c.
+   * La posizione di un attributo discreto contiene null.
+   */
+  private final double[][] sums;
+
+  /**
+   * Istogrammi per cluster degli attributi discreti: histograms[j][c * domains[j] + v] è il numero di transazioni
+   * del cluster c con codice v per l'attributo j. La posizione di un attributo continuo contiene null.
+   */
+  private final int[][] histograms;
+
+  /**
+   * Cardinalità del dominio di ciascun attributo discreto (0 per gli attributi continui).
+   */
+  private final int[] domains;
+
+  /**
+   * Costruttore della classe ClusterAccumulator, con tutti i cluster inizialmente vuoti.
+   *
+   * @param data L'oggetto Data contenente le transazioni.
+   * @param k    Il numero di cluster.
+   */
+  public ClusterAccumulator(Data data, int k) {
+    this.data = data;
+    this.k = k;
+    int m = data.getNumberOfAttributes();
+    counts = new int[k];
+    sums = new double[m][];
+    histograms = new int[m][];
+    domains = new int[m];
+    for (int j = 0; j < m; j++) {
+      Attribute attribute = data.getAttribute(j);
+      if (attribute instanceof ContinuousAttribute)
+        sums[j] = new double[k];
+      else {
+        domains[j] = ((DiscreteAttribute) attribute).getNumberOfDistinctValues();
+        histograms[j] = new int[k * domains[j]];
+      }
+    }
+  }
+
+  /**
+   * Aggiunge una transazione alle statistiche di un cluster.
+   *
+   * @param id      Identificatore della transazione.
+   * @param cluster Posizione del cluster.
+   */
+  public void add(int id, int cluster) {
+    accumulate(id, cluster, 1);
+  }
+
+  /**
+   * Rimuove una transazione dalle statistiche di un cluster.
+   *
+   * @param id      Identificatore della transazione.
+   * @param cluster Posizione del cluster.
+   */
+  public void remove(int id, int cluster) {
+    accumulate(id, cluster, -1);
+  }
+
+  /**
+   * Aggiunge (sign = 1) o rimuove (sign = -1) una transazione dalle statistiche di un cluster.
+   *
+   * @param id      Identificatore della transazione.
+   * @param cluster Posizione del cluster.
+   * @param sign    Verso dell'aggiornamento.
+   */
+  private void accumulate(int id, int cluster, int sign) {
+    counts[cluster] += sign;
+    for (int j = 0; j < sums.length; j++) {
+      if (sums[j] != null) {
+        // un cluster che si svuota riparte da zero, senza trascinare l'errore di arrotondamento
+        sums[j][cluster] = counts[cluster] == 0 ? 0 : sums[j][cluster] + sign * data.getContinuousValue(id, j);
+      } else
+        histograms[j][cluster * domains[j] + data.getDiscreteCode(id, j)] += sign;
+    }
+  }
+
+  /**
+   * Restituisce il numero di transazioni accumulate in un cluster.
+   *
+   * @param cluster Posizione del cluster.
+   * @return Il numero di transazioni del cluster.
+   */
+  public int getCount(int cluster) {
+    return counts[cluster];
+  }
+
+  /**
+   * Aggiorna il centroide di un cluster a partire dalle statistiche accumulate: media per gli attributi continui,
+   * valore più frequente (a parità di frequenza il codice minore) per gli attributi discreti.
+   * Il centroide di un cluster vuoto non viene modificato.
+   *
+   * @param cluster  Posizione del cluster.
+   * @param centroid Il centroide da aggiornare.
+   */
+  public void updateCentroid(int cluster, Tuple centroid) {
+    if (counts[cluster] == 0)
+      return;
+    for (int j = 0; j < sums.length; j++) {
+      if (sums[j] != null)
+        ((ContinuousItem) centroid.get(j)).setValue(sums[j][cluster] / counts[cluster]);
+      else {
+        int prototype = DiscreteAttribute.mode(histograms[j], cluster * domains[j], domains[j]);
+        ((DiscreteItem) centroid.get(j)).setCode(prototype);
+      }
+    }
+  }
+
+  /**
+   * Restituisce il numero di cluster.
+   *
+   * @return Il numero di cluster.
+   */
+  public int getNumberOfClusters() {
+    return k;
+  }
+}
@@ -7,6 +7,10 @@ package data;
  * all'interno dell'intervallo specificato.
  */
 public class ContinuousAttribute extends Attribute {
+  /**
+   * Numero di versione della forma serializzata, invariata rispetto alla versione originale della classe.
+   */
+  private static final long serialVersionUID = -8586546365228657877L;
   /**
    * Rappresenta il valore massimo dell'attributo continuo.
    */
@@ -29,13 +33,33 @@ public class ContinuousAttribute extends Attribute {
     this.max = max;
     this.min = min;
   }
+
+  /**
+   * Restituisce il valore minimo dell'intervallo di valori dell'attributo.
+   *
+   * @return Il valore minimo.
+   */
+  double getMin() {
+    return min;
+  }
+
+  /**
+   * Restituisce il valore massimo dell'intervallo di valori dell'attributo.
+   *
+   * @return Il valore massimo.
+   */
+  double getMax() {
+    return max;
+  }
+
   /**
    * Restituisce il valore scalato dell'attributo continuo all'interno dell'intervallo specificato.
+   * Se il dominio è degenere (min uguale a max) il valore scalato è 0.
    *
    * @param v Il valore dell'attributo continuo da scalare.
    * @return Il valore scalato dell'attributo continuo.
    */
   double getScaledValue(double v) {
-    return (v - min) / (max - min);
+    return max == min ? 0 : (v - min) / (max - min);
   }
 }
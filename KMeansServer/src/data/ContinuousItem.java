@@ -1,5 +1,8 @@
 package data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 import static java.lang.Math.abs;
 /**
  * La classe ContinuousItem rappresenta un elemento di dati associato a un attributo continuo.
@@ -7,6 +10,16 @@ import static java.lang.Math.abs;
  */
 public class ContinuousItem extends Item {
 
+  /**
+   * Numero di versione della forma serializzata, fissato a quello della versione originale della classe.
+   */
+  private static final long serialVersionUID = 7429093016666178545L;
+
+  /**
+   * Valore assegnato all'attributo continuo nell'item.
+   */
+  private double value;
+
   /**
    * Costruttore della classe ContinuousItem.
    *
@@ -14,20 +27,70 @@ public class ContinuousItem extends Item {
    * @param value     Il valore dell'elemento di dati per l'attributo continuo.
    */
   ContinuousItem(ContinuousAttribute attribute, double value) {
-    super(attribute, value);
+    super(attribute);
+    this.value = value;
+  }
+
+  /**
+   * Legge l'item; per un modello salvato con la forma originale il valore è il Double memorizzato in Item.
+   *
+   * @param in Lo stream da cui leggere.
+   * @throws IOException            Eccezione lanciata in caso di errori di I/O.
+   * @throws ClassNotFoundException Eccezione lanciata se la classe di un campo non è disponibile.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    Object legacy = takeLegacyValue();
+    if (legacy != null)
+      value = ((Number) legacy).doubleValue();
   }
 
+  /**
+   * Restituisce il valore assegnato all'attributo continuo.
+   *
+   * @return Il valore dell'elemento di dati.
+   */
+  public Object getValue() {
+    return value;
+  }
+
+  /**
+   * Restituisce il valore assegnato all'attributo continuo, senza boxing.
+   *
+   * @return Il valore dell'elemento di dati.
+   */
+  double getDoubleValue() {
+    return value;
+  }
+
+  /**
+   * Imposta il valore assegnato all'attributo continuo.
+   *
+   * @param value Il nuovo valore dell'elemento di dati.
+   */
+  void setValue(double value) {
+    this.value = value;
+  }
+
+  /**
+   * Restituisce il valore come stringa senza passare per il boxing.
+   *
+   * @return Una rappresentazione in forma di stringa dell'elemento di dati.
+   */
+  public String toString() {
+    return Double.toString(value);
+  }
 
   /**
    * Calcola la distanza tra due elementi di dati basata sugli attributi continui.
    *
-   * @param a L'oggetto da confrontare con l'elemento corrente.
+   * @param a L'elemento da confrontare con l'elemento corrente.
    * @return La distanza tra gli elementi di dati basata sugli attributi continui.
    */
-  double distance(Object a) {
+  double distance(Item a) {
     // Ottiene l'attributo continuo associato all'elemento corrente
     ContinuousAttribute attribute = (ContinuousAttribute) this.getAttribute();
-    return abs(attribute.getScaledValue((double) this.getValue()) - attribute.getScaledValue((double) a));
+    return abs(attribute.getScaledValue(value) - attribute.getScaledValue(((ContinuousItem) a).value));
   }
 
 }
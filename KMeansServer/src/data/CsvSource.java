@@ -0,0 +1,546 @@
+package data;
+
+import database.EmptySetException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * La classe CsvSource costruisce un oggetto Data a partire da un file di testo con valori separati (CSV),
+ * senza passare dal database. La prima riga contiene i nomi delle colonne; una colonna è continua se tutti
+ * i suoi valori sono numerici, altrimenti è discreta.
+ * Il file viene diviso in intervalli di byte allineati all'inizio delle righe, elaborati in parallelo:
+ * un primo passaggio conta le righe di ciascun intervallo, così che il secondo scriva i valori direttamente
+ * nella posizione finale delle colonne senza copie intermedie.
+ * Sono supportati i campi tra virgolette doppie (con "" per le virgolette interne), purché non contengano
+ * ritorni a capo. Le celle vuote di una colonna continua valgono 0 e non contribuiscono agli estremi,
+ * come i valori NULL letti dal database.
+ * Come la lettura dal database, che usa SELECT DISTINCT, le righe ripetute vengono conservate una sola volta,
+ * nella posizione della loro prima occorrenza.
+ */
+public class CsvSource {
+
+  /**
+   * Cartella da cui vengono letti i file richiesti dai client.
+   */
+  public static final String DIRECTORY = "KMeansServer\\Dati\\";
+
+  /**
+   * Numero di righe iniziali esaminate per stabilire il tipo delle colonne.
+   */
+  private static final int SAMPLE_ROWS = 1000;
+
+  /**
+   * Dimensione minima in byte di un intervallo elaborato da un thread.
+   */
+  private static final long MIN_RANGE = 1 << 20;
+
+  /**
+   * Dimensione massima in byte di un intervallo, entro il limite di una singola mappatura.
+   */
+  private static final long MAX_RANGE = 1 << 30;
+
+  /**
+   * Capacità massima della tabella usata per riconoscere le righe ripetute.
+   */
+  private static final int MAX_TABLE = 1 << 30;
+
+  /**
+   * Costruisce un oggetto Data dal file CSV specificato.
+   *
+   * @param fileName  Il percorso del file.
+   * @param separator Il carattere separatore dei campi.
+   * @param threads   Numero di thread per l'elaborazione parallela, almeno 1.
+   * @return L'oggetto Data con le righe distinte del file.
+   * @throws IOException       Eccezione lanciata in caso di errori di I/O o di righe malformate.
+   * @throws EmptySetException Eccezione lanciata se il file non contiene righe di dati.
+   */
+  public static Data read(String fileName, char separator, int threads) throws IOException, EmptySetException {
+    try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+      long size = channel.size();
+      long dataStart = nextLine(channel, 0, size);
+      if (dataStart == 0) throw new EmptySetException("Il file " + fileName + " è vuoto");
+      String[] names = splitLine(readBytes(channel, 0, dataStart), separator).toArray(new String[0]);
+      int m = names.length;
+      boolean[] numeric = sampleTypes(channel, dataStart, size, separator, m);
+
+      // intervalli allineati all'inizio delle righe
+      int ranges = (int) Math.max(1, Math.min((long) threads * 4, (size - dataStart) / MIN_RANGE));
+      ranges = (int) Math.max(ranges, (size - dataStart + MAX_RANGE - 1) / MAX_RANGE);
+      long[] bounds = new long[ranges + 1];
+      bounds[0] = dataStart;
+      for (int r = 1; r < ranges; r++)
+        bounds[r] = Math.max(bounds[r - 1], nextLine(channel, dataStart + (size - dataStart) * r / ranges - 1, size));
+      bounds[ranges] = size;
+
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      try {
+        // primo passaggio: numero di righe di ciascun intervallo
+        List<Future<Integer>> counts = new ArrayList<>(ranges);
+        for (int r = 0; r < ranges; r++) {
+          long from = bounds[r], to = bounds[r + 1];
+          counts.add(pool.submit(() -> countLines(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from))));
+        }
+        int[] offsets = new int[ranges + 1];
+        for (int r = 0; r < ranges; r++) offsets[r + 1] = Math.addExact(offsets[r], get(counts.get(r)));
+        int n = offsets[ranges];
+        if (n == 0) throw new EmptySetException("Il file " + fileName + " non contiene righe di dati");
+
+        // secondo passaggio: decodifica nelle colonne, ripetuto una volta se alcune colonne continue risultano discrete
+        while (true) {
+          double[][] continuousColumns = new double[m][];
+          int[][] discreteColumns = new int[m][];
+          for (int j = 0; j < m; j++) {
+            if (numeric[j]) continuousColumns[j] = new double[n];
+            else discreteColumns[j] = new int[n];
+          }
+          List<Future<RangeResult>> parsed = new ArrayList<>(ranges);
+          for (int r = 0; r < ranges; r++) {
+            long from = bounds[r], to = bounds[r + 1];
+            int offset = offsets[r];
+            parsed.add(pool.submit(() -> parseRange(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from),
+                offset, separator, continuousColumns, discreteColumns)));
+          }
+          List<RangeResult> results = new ArrayList<>(ranges);
+          boolean retry = false;
+          for (Future<RangeResult> future : parsed) {
+            RangeResult result = get(future);
+            results.add(result);
+            for (int j = 0; j < m; j++) {
+              if (result.notNumeric[j]) {
+                numeric[j] = false;
+                retry = true;
+              }
+            }
+          }
+          if (retry) continue;
+          return merge(names, continuousColumns, discreteColumns, results, offsets, n, pool);
+        }
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Il risultato dell'elaborazione di un intervallo: estremi delle colonne continue e dizionari locali
+   * delle colonne discrete, i cui codici sono già scritti nelle colonne.
+   */
+  private static class RangeResult {
+
+    /**
+     * Minimo e massimo di ciascuna colonna continua nell'intervallo.
+     */
+    final double[] min, max;
+
+    /**
+     * Valori di ciascuna colonna discreta nell'ordine dei codici locali, null per le colonne continue.
+     */
+    final List<List<String>> values;
+
+    /**
+     * Indica le colonne ritenute continue in cui l'intervallo contiene un valore non numerico.
+     */
+    final boolean[] notNumeric;
+
+    /**
+     * Costruttore della classe RangeResult.
+     *
+     * @param m Numero di colonne.
+     */
+    RangeResult(int m) {
+      min = new double[m];
+      max = new double[m];
+      Arrays.fill(min, Double.POSITIVE_INFINITY);
+      Arrays.fill(max, Double.NEGATIVE_INFINITY);
+      values = new ArrayList<>(m);
+      notNumeric = new boolean[m];
+    }
+  }
+
+  /**
+   * Decodifica le righe di un intervallo nelle colonne, a partire dalla riga offset.
+   *
+   * @param buffer            I byte dell'intervallo.
+   * @param offset            Indice della prima riga dell'intervallo.
+   * @param separator         Il carattere separatore dei campi.
+   * @param continuousColumns Le colonne dei valori continui.
+   * @param discreteColumns   Le colonne dei codici discreti, con codici locali all'intervallo.
+   * @return Gli estremi, i dizionari locali e le colonne non numeriche dell'intervallo.
+   * @throws IOException Eccezione lanciata se una riga non ha il numero di campi atteso.
+   */
+  private static RangeResult parseRange(MappedByteBuffer buffer, int offset, char separator,
+                                        double[][] continuousColumns, int[][] discreteColumns) throws IOException {
+    int m = continuousColumns.length;
+    RangeResult result = new RangeResult(m);
+    List<Map<String, Integer>> codes = new ArrayList<>(m);
+    for (int j = 0; j < m; j++) {
+      codes.add(continuousColumns[j] == null ? new HashMap<>() : null);
+      result.values.add(continuousColumns[j] == null ? new ArrayList<>() : null);
+    }
+    byte[] line = new byte[256];
+    int row = offset;
+    while (buffer.hasRemaining()) {
+      int length = 0;
+      boolean content = false;
+      while (buffer.hasRemaining()) {
+        byte b = buffer.get();
+        if (b == '\n') break;
+        if (length == line.length) line = Arrays.copyOf(line, length * 2);
+        line[length++] = b;
+        content |= b != '\r';
+      }
+      if (!content) continue; // righe vuote, escluse anche dal conteggio
+      while (line[length - 1] == '\r') length--;
+      List<String> fields = splitLine(Arrays.copyOf(line, length), separator);
+      if (fields.size() != m)
+        throw new IOException("La riga " + (row + 2) + " ha " + fields.size() + " campi invece di " + m);
+      for (int j = 0; j < m; j++) {
+        String field = fields.get(j);
+        if (continuousColumns[j] != null) {
+          String value = field.trim();
+          if (value.isEmpty() || result.notNumeric[j]) continue;
+          double v;
+          try {
+            v = Double.parseDouble(value);
+          } catch (NumberFormatException e) {
+            // la colonna verrà riletta come discreta; le altre colonne continuano a essere verificate
+            result.notNumeric[j] = true;
+            continue;
+          }
+          continuousColumns[j][row] = v;
+          if (v < result.min[j]) result.min[j] = v;
+          if (v > result.max[j]) result.max[j] = v;
+        } else {
+          Integer code = codes.get(j).get(field);
+          if (code == null) {
+            code = codes.get(j).size();
+            codes.get(j).put(field, code);
+            result.values.get(j).add(field);
+          }
+          discreteColumns[j][row] = code;
+        }
+      }
+      row++;
+    }
+    return result;
+  }
+
+  /**
+   * Costruisce gli attributi unendo i risultati degli intervalli, ricodifica in parallelo le colonne discrete
+   * dai codici locali a quelli dei domini ordinati ed elimina le righe ripetute.
+   *
+   * @param names             I nomi delle colonne.
+   * @param continuousColumns Le colonne dei valori continui.
+   * @param discreteColumns   Le colonne dei codici discreti, con codici locali agli intervalli.
+   * @param results           I risultati degli intervalli, nell'ordine del file.
+   * @param offsets           Indice della prima riga di ciascun intervallo.
+   * @param n                 Numero di righe.
+   * @param pool              Il pool su cui ricodificare gli intervalli.
+   * @return L'oggetto Data.
+   * @throws IOException Eccezione lanciata se l'elaborazione di un intervallo fallisce.
+   */
+  private static Data merge(String[] names, double[][] continuousColumns, int[][] discreteColumns,
+                            List<RangeResult> results, int[] offsets, int n, ExecutorService pool) throws IOException {
+    int m = names.length;
+    List<Attribute> attributes = new ArrayList<>(m);
+    for (int j = 0; j < m; j++) {
+      if (continuousColumns[j] != null) {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (RangeResult result : results) {
+          min = Math.min(min, result.min[j]);
+          max = Math.max(max, result.max[j]);
+        }
+        if (min > max) min = max = 0;
+        attributes.add(new ContinuousAttribute(names[j], j, min, max));
+      } else {
+        Set<String> values = new HashSet<>();
+        for (RangeResult result : results) values.addAll(result.values.get(j));
+        attributes.add(new DiscreteAttribute(names[j], j, values));
+      }
+    }
+    List<Future<Object>> recoded = new ArrayList<>(results.size());
+    for (int r = 0; r < results.size(); r++) {
+      RangeResult result = results.get(r);
+      int from = offsets[r], to = offsets[r + 1];
+      recoded.add(pool.submit(() -> {
+        for (int j = 0; j < m; j++) {
+          if (discreteColumns[j] == null) continue;
+          DiscreteAttribute attribute = (DiscreteAttribute) attributes.get(j);
+          List<String> local = result.values.get(j);
+          int[] recode = new int[local.size()];
+          for (int c = 0; c < recode.length; c++) recode[c] = attribute.getCode(local.get(c));
+          int[] column = discreteColumns[j];
+          for (int i = from; i < to; i++) column[i] = recode[column[i]];
+        }
+        return null;
+      }));
+    }
+    for (Future<Object> future : recoded) get(future);
+    n = removeDuplicates(continuousColumns, discreteColumns, offsets, pool);
+    return new Data(attributes, continuousColumns, discreteColumns, n);
+  }
+
+  /**
+   * Elimina le righe ripetute conservandone la prima occorrenza, come SELECT DISTINCT nella lettura dal
+   * database. L'impronta di ciascuna riga viene calcolata in parallelo per intervalli; le righe vengono poi
+   * inserite in ordine in una tabella a indirizzamento aperto, confrontando i valori solo a parità di impronta.
+   * Se ci sono righe ripetute le colonne vengono compattate in parallelo. Estremi e domini degli attributi
+   * non cambiano, perché ogni valore eliminato resta presente nella sua prima occorrenza.
+   *
+   * @param continuousColumns Le colonne dei valori continui, sostituite da quelle compattate.
+   * @param discreteColumns   Le colonne dei codici discreti, sostituite da quelle compattate.
+   * @param offsets           Indice della prima riga di ciascun intervallo; l'ultimo elemento è il numero di righe.
+   * @param pool              Il pool su cui elaborare gli intervalli e le colonne.
+   * @return Il numero di righe distinte.
+   * @throws IOException Eccezione lanciata se l'elaborazione fallisce o le righe sono troppe per la tabella.
+   */
+  private static int removeDuplicates(double[][] continuousColumns, int[][] discreteColumns, int[] offsets,
+                                      ExecutorService pool) throws IOException {
+    int n = offsets[offsets.length - 1], m = continuousColumns.length;
+    long[] hashes = new long[n];
+    List<Future<Object>> hashed = new ArrayList<>(offsets.length - 1);
+    for (int r = 0; r + 1 < offsets.length; r++) {
+      int from = offsets[r], to = offsets[r + 1];
+      hashed.add(pool.submit(() -> {
+        for (int i = from; i < to; i++) {
+          long h = 0;
+          for (int j = 0; j < m; j++) {
+            long v = continuousColumns[j] != null ? Double.doubleToLongBits(continuousColumns[j][i] + 0.0) : discreteColumns[j][i];
+            h = (h ^ v) * 0x9E3779B97F4A7C15L;
+          }
+          hashes[i] = h ^ (h >>> 32);
+        }
+        return null;
+      }));
+    }
+    for (Future<Object> future : hashed) get(future);
+
+    int capacity = 2;
+    while (capacity < MAX_TABLE && capacity < n + (n >> 1)) capacity <<= 1;
+    if (n >= capacity) throw new IOException("Troppe righe per l'eliminazione delle righe ripetute: " + n);
+    int mask = capacity - 1;
+    int[] table = new int[capacity];
+    Arrays.fill(table, -1);
+    boolean[] keep = new boolean[n];
+    int distinct = 0;
+    for (int i = 0; i < n; i++) {
+      int slot = (int) hashes[i] & mask;
+      while (table[slot] >= 0 && (hashes[table[slot]] != hashes[i] || !sameRow(table[slot], i, continuousColumns, discreteColumns)))
+        slot = (slot + 1) & mask;
+      if (table[slot] < 0) {
+        table[slot] = i;
+        keep[i] = true;
+        distinct++;
+      }
+    }
+    if (distinct == n) return n;
+
+    int rows = distinct;
+    List<Future<Object>> compacted = new ArrayList<>(m);
+    for (int j = 0; j < m; j++) {
+      int column = j;
+      compacted.add(pool.submit(() -> {
+        int d = 0;
+        if (continuousColumns[column] != null) {
+          double[] values = new double[rows];
+          for (int i = 0; i < n; i++) if (keep[i]) values[d++] = continuousColumns[column][i];
+          continuousColumns[column] = values;
+        } else {
+          int[] codes = new int[rows];
+          for (int i = 0; i < n; i++) if (keep[i]) codes[d++] = discreteColumns[column][i];
+          discreteColumns[column] = codes;
+        }
+        return null;
+      }));
+    }
+    for (Future<Object> future : compacted) get(future);
+    return distinct;
+  }
+
+  /**
+   * Verifica se due righe hanno gli stessi valori in tutte le colonne.
+   *
+   * @param a                 Indice della prima riga.
+   * @param b                 Indice della seconda riga.
+   * @param continuousColumns Le colonne dei valori continui.
+   * @param discreteColumns   Le colonne dei codici discreti.
+   * @return true se le righe sono uguali.
+   */
+  private static boolean sameRow(int a, int b, double[][] continuousColumns, int[][] discreteColumns) {
+    for (int j = 0; j < continuousColumns.length; j++) {
+      if (continuousColumns[j] != null) {
+        double x = continuousColumns[j][a], y = continuousColumns[j][b];
+        if (x != y && !(Double.isNaN(x) && Double.isNaN(y))) return false;
+      } else if (discreteColumns[j][a] != discreteColumns[j][b]) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Stabilisce il tipo delle colonne dalle prime SAMPLE_ROWS righe: una colonna è continua se tutti i valori
+   * non vuoti esaminati sono numerici e almeno uno non è vuoto.
+   *
+   * @param channel   Il file.
+   * @param from      Posizione della prima riga di dati.
+   * @param size      Dimensione del file.
+   * @param separator Il carattere separatore dei campi.
+   * @param m         Numero di colonne.
+   * @return Per ciascuna colonna, true se è ritenuta continua.
+   * @throws IOException Eccezione lanciata in caso di errori di I/O.
+   */
+  private static boolean[] sampleTypes(FileChannel channel, long from, long size, char separator, int m) throws IOException {
+    boolean[] numeric = new boolean[m];
+    boolean[] seen = new boolean[m];
+    Arrays.fill(numeric, true);
+    long position = from;
+    for (int rows = 0; rows < SAMPLE_ROWS && position < size; ) {
+      long end = nextLine(channel, position, size);
+      String line = new String(readBytes(channel, position, end), StandardCharsets.UTF_8).strip();
+      position = end;
+      if (line.isEmpty()) continue;
+      List<String> fields = splitLine(line.getBytes(StandardCharsets.UTF_8), separator);
+      for (int j = 0; j < Math.min(m, fields.size()); j++) {
+        String value = fields.get(j).trim();
+        if (value.isEmpty()) continue;
+        seen[j] = true;
+        try {
+          Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+          numeric[j] = false;
+        }
+      }
+      rows++;
+    }
+    for (int j = 0; j < m; j++) numeric[j] &= seen[j];
+    return numeric;
+  }
+
+  /**
+   * Divide una riga nei suoi campi, gestendo i campi tra virgolette doppie.
+   *
+   * @param line      I byte della riga, senza ritorno a capo.
+   * @param separator Il carattere separatore dei campi.
+   * @return I campi della riga.
+   */
+  private static List<String> splitLine(byte[] line, char separator) {
+    String text = new String(line, StandardCharsets.UTF_8).stripTrailing();
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else if (c == '"') quoted = false;
+        else field.append(c);
+      } else if (c == '"') quoted = true;
+      else if (c == separator) {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else field.append(c);
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  /**
+   * Conta le righe non vuote di un intervallo.
+   *
+   * @param buffer I byte dell'intervallo.
+   * @return Il numero di righe non vuote.
+   */
+  private static int countLines(MappedByteBuffer buffer) {
+    int lines = 0;
+    boolean content = false;
+    while (buffer.hasRemaining()) {
+      byte b = buffer.get();
+      if (b == '\n') {
+        if (content) lines++;
+        content = false;
+      } else if (b != '\r') content = true;
+    }
+    return content ? lines + 1 : lines;
+  }
+
+  /**
+   * Restituisce la posizione successiva al primo ritorno a capo a partire da una posizione specificata.
+   *
+   * @param channel  Il file.
+   * @param position Posizione da cui cercare.
+   * @param size     Dimensione del file.
+   * @return La posizione di inizio della riga successiva, o size se non ci sono altri ritorni a capo.
+   * @throws IOException Eccezione lanciata in caso di errori di I/O.
+   */
+  private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(8192);
+    while (position < size) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) break;
+      for (int i = 0; i < read; i++)
+        if (buffer.get(i) == '\n') return position + i + 1;
+      position += read;
+    }
+    return size;
+  }
+
+  /**
+   * Legge i byte di un tratto del file.
+   *
+   * @param channel Il file.
+   * @param from    Posizione iniziale (inclusa).
+   * @param to      Posizione finale (esclusa).
+   * @return I byte letti.
+   * @throws IOException Eccezione lanciata in caso di errori di I/O.
+   */
+  private static byte[] readBytes(FileChannel channel, long from, long to) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+    while (buffer.hasRemaining() && channel.read(buffer, from + buffer.position()) > 0) ;
+    byte[] bytes = buffer.array();
+    int length = bytes.length;
+    while (length > 0 && (bytes[length - 1] == '\n' || bytes[length - 1] == '\r')) length--;
+    return Arrays.copyOf(bytes, length);
+  }
+
+  /**
+   * Attende il risultato di un'elaborazione parallela, rilanciandone l'eventuale eccezione.
+   *
+   * @param future L'elaborazione.
+   * @param <T>    Il tipo del risultato.
+   * @return Il risultato.
+   * @throws IOException Eccezione lanciata se l'elaborazione è fallita per un errore di I/O.
+   */
+  private static <T> T get(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Lettura interrotta");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+}
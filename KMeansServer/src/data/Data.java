@@ -3,21 +3,39 @@ package data;
 import database.*;
 
 import java.io.Serializable;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 
 import static database.QUERY_TYPE.MAX;
 import static database.QUERY_TYPE.MIN;
+import static java.lang.Math.abs;
 
 /**
  * La classe Data rappresenta un insieme di dati associato a un determinato schema di tabella nel database.
  * Include informazioni sulle transazioni, sugli attributi e fornisce metodi per l'accesso e la manipolazione dei dati.
+ * Le transazioni sono memorizzate per colonne di tipo primitivo: un array double per ciascun attributo continuo
+ * e un array int di codici per ciascun attributo discreto.
  */
 public class Data /*implements Serializable*/ {
   // Le visibilità di classi, attributi e metodi devono essere decise dagli studenti
-  private List<Example> data; // una matrice nXm di tipo Object dove ogni riga modella una transazioni
   private final int numberOfExamples; // cardinalità dell’insieme di transazioni (numero di righe in data)
   private final List<Attribute> attributeSet; // un vettore degli attributi in ciascuna tupla (schema della tabella di dati)
+  /**
+   * Strategia di calcolo di estremi e domini degli attributi usata dal costruttore.
+   */
+  private static SchemaStatistics schemaStatistics = SchemaStatistics.SCAN;
+  /**
+   * Memorizzazione per colonne dei valori continui: continuousColumns[j][i] è il valore dell'attributo
+   * continuo j nella transazione i. La posizione di un attributo discreto contiene null.
+   */
+  private final double[][] continuousColumns;
+  /**
+   * Memorizzazione per colonne dei valori discreti, codificati con il codice del valore nel dominio
+   * dell'attributo: discreteColumns[j][i] è il codice dell'attributo discreto j nella transazione i.
+   * La posizione di un attributo continuo contiene null.
+   */
+  private final int[][] discreteColumns;
 
   /**
    * Costruttore della classe Data che inizializza il set di dati basato su connessione al database e informazioni sulla tabella.
@@ -37,23 +55,254 @@ public class Data /*implements Serializable*/ {
     // basati su informazioni sulla tabella.
     DbAccess db = new DbAccess(server, database, userId, password);
     db.initConnection();
-    TableData td = new TableData(db);
-    TableSchema ts = new TableSchema(db, table);
-    data = td.getDistinctTransazioni(table);
-    numberOfExamples = data.size();
-    attributeSet = new ArrayList<>();
+    try {
+      TableData td = new TableData(db);
+      TableSchema ts = new TableSchema(db, table);
+      ColumnLoader loader;
+      if (schemaStatistics == SchemaStatistics.SCAN) {
+        // Estremi e domini vengono calcolati durante l'unica lettura delle transazioni.
+        loader = new ColumnLoader(ts, null);
+      } else {
+        loader = new ColumnLoader(ts, readAttributes(td, ts, table));
+      }
+      // Lettura in streaming delle transazioni direttamente nelle colonne primitive, ampliate durante la lettura.
+      td.scanDistinctTransazioni(table, loader);
+      numberOfExamples = loader.finish();
+      attributeSet = loader.attributes;
+      continuousColumns = loader.continuousColumns;
+      discreteColumns = loader.discreteColumns;
+    } finally {
+      // La connessione torna al pool anche se la lettura fallisce.
+      db.closeConnection();
+    }
+  }
+
+  /**
+   * Costruttore della classe Data a partire da attributi e colonne già costruiti, ad esempio letti da una copia su disco.
+   *
+   * @param attributeSet      Gli attributi, nell'ordine delle colonne.
+   * @param continuousColumns Le colonne dei valori continui, null per gli attributi discreti.
+   * @param discreteColumns   Le colonne dei codici discreti, null per gli attributi continui.
+   * @param numberOfExamples  Il numero di transazioni.
+   */
+  Data(List<Attribute> attributeSet, double[][] continuousColumns, int[][] discreteColumns, int numberOfExamples) {
+    this.attributeSet = attributeSet;
+    this.continuousColumns = continuousColumns;
+    this.discreteColumns = discreteColumns;
+    this.numberOfExamples = numberOfExamples;
+  }
+
+  /**
+   * Imposta per l'intero server la strategia di calcolo di estremi e domini degli attributi.
+   *
+   * @param statistics La strategia di calcolo.
+   */
+  public static void setSchemaStatistics(SchemaStatistics statistics) {
+    schemaStatistics = statistics;
+  }
+
+  /**
+   * Costruisce gli attributi della tabella interrogando il database prima della lettura delle transazioni,
+   * secondo la strategia QUERIES o AGGREGATE.
+   *
+   * @param td    L'oggetto TableData per le interrogazioni.
+   * @param ts    Lo schema della tabella.
+   * @param table Il nome della tabella.
+   * @return Gli attributi della tabella, nell'ordine delle colonne.
+   * @throws SQLException     Eccezione lanciata in caso di errore SQL.
+   * @throws NoValueException Eccezione lanciata in caso di mancanza di valori.
+   */
+  private static List<Attribute> readAttributes(TableData td, TableSchema ts, String table) throws SQLException, NoValueException {
+    double[][] bounds = null;
+    if (schemaStatistics == SchemaStatistics.AGGREGATE) {
+      List<TableSchema.Column> numeric = new ArrayList<>();
+      for (int i = 0; i < ts.getNumberOfAttributes(); i++)
+        if (ts.getColumn(i).isNumber()) numeric.add(ts.getColumn(i));
+      bounds = td.getMinMaxColumnValues(table, numeric);
+    }
+    List<Attribute> attributes = new ArrayList<>();
+    int n = 0;
     for (int i = 0; i < ts.getNumberOfAttributes(); i++) {
       if (ts.getColumn(i).isNumber()) {
-        attributeSet.add(new ContinuousAttribute(ts.getColumn(i).getColumnName(), i, (double) td.getAggregateColumnValue(table, ts.getColumn(i), MIN), (double) td.getAggregateColumnValue(table, ts.getColumn(i), MAX)));
+        if (bounds != null) {
+          attributes.add(new ContinuousAttribute(ts.getColumn(i).getColumnName(), i, bounds[n][0], bounds[n][1]));
+          n++;
+        } else
+          attributes.add(new ContinuousAttribute(ts.getColumn(i).getColumnName(), i, (double) td.getAggregateColumnValue(table, ts.getColumn(i), MIN), (double) td.getAggregateColumnValue(table, ts.getColumn(i), MAX)));
       } else {
         HashSet<Object> distValues = (HashSet<Object>) td.getDistinctColumnValues(table, ts.getColumn(i));
         HashSet<String> values = new HashSet<>();
         for (Object o : distValues) {
           values.add((String) o);
         }
-        attributeSet.add(new DiscreteAttribute(ts.getColumn(i).getColumnName(), i, values));
+        attributes.add(new DiscreteAttribute(ts.getColumn(i).getColumnName(), i, values));
       }
     }
+    return attributes;
+  }
+
+  /**
+   * La classe ColumnLoader riceve le transazioni lette in streaming dal database e le decodifica direttamente
+   * nelle colonne primitive, leggendo le colonne del ResultSet per posizione.
+   * Le colonne partono da INITIAL_CAPACITY transazioni, crescono geometricamente (di metà della capacità)
+   * quando sono piene e vengono riportate alla dimensione esatta al termine, senza una query di conteggio
+   * preliminare che rileggerebbe la tabella.
+   * Se gli attributi non sono noti prima della lettura, il ColumnLoader calcola gli estremi delle colonne
+   * numeriche e assegna ai valori delle colonne di stringhe codici provvisori in ordine di apparizione;
+   * al termine costruisce gli attributi e ricodifica le colonne discrete secondo l'ordine dei domini.
+   */
+  private static class ColumnLoader implements RowHandler {
+
+    /**
+     * Capacità iniziale delle colonne.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Lo schema della tabella.
+     */
+    private final TableSchema schema;
+
+    /**
+     * Gli attributi della tabella, nell'ordine delle colonne; null finché non sono costruiti da finish.
+     */
+    private List<Attribute> attributes;
+
+    /**
+     * Colonne dei valori continui, null per gli attributi discreti.
+     */
+    private final double[][] continuousColumns;
+
+    /**
+     * Colonne dei codici discreti, null per gli attributi continui.
+     */
+    private final int[][] discreteColumns;
+
+    /**
+     * Minimo e massimo di ciascuna colonna numerica, calcolati durante la lettura se gli attributi non sono noti.
+     */
+    private double[] min, max;
+
+    /**
+     * Codici provvisori dei valori di ciascuna colonna di stringhe, in ordine di apparizione,
+     * usati se gli attributi non sono noti.
+     */
+    private List<Map<String, Integer>> provisional;
+
+    /**
+     * Numero di transazioni lette.
+     */
+    private int size = 0;
+
+    /**
+     * Numero di transazioni che le colonne possono contenere.
+     */
+    private int capacity;
+
+    /**
+     * Costruttore della classe ColumnLoader.
+     *
+     * @param schema     Lo schema della tabella.
+     * @param attributes Gli attributi della tabella, nell'ordine delle colonne, o null per calcolarli durante la lettura.
+     */
+    ColumnLoader(TableSchema schema, List<Attribute> attributes) {
+      this.schema = schema;
+      this.attributes = attributes;
+      int m = schema.getNumberOfAttributes();
+      capacity = INITIAL_CAPACITY;
+      continuousColumns = new double[m][];
+      discreteColumns = new int[m][];
+      for (int j = 0; j < m; j++) {
+        if (schema.getColumn(j).isNumber()) continuousColumns[j] = new double[capacity];
+        else discreteColumns[j] = new int[capacity];
+      }
+      if (attributes == null) {
+        min = new double[m];
+        max = new double[m];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        provisional = new ArrayList<>(m);
+        for (int j = 0; j < m; j++)
+          provisional.add(schema.getColumn(j).isNumber() ? null : new HashMap<>());
+      }
+    }
+
+    /**
+     * Decodifica la riga corrente nelle colonne.
+     *
+     * @param row Il ResultSet posizionato sulla riga da elaborare.
+     * @throws SQLException Eccezione lanciata in caso di errori SQL durante la lettura della riga.
+     */
+    public void handle(ResultSet row) throws SQLException {
+      if (size == capacity) resize(capacity + (capacity >> 1) + 1);
+      for (int j = 0; j < continuousColumns.length; j++) {
+        if (continuousColumns[j] != null) {
+          double value = row.getDouble(j + 1);
+          continuousColumns[j][size] = value;
+          if (attributes == null && !row.wasNull()) {
+            if (value < min[j]) min[j] = value;
+            if (value > max[j]) max[j] = value;
+          }
+        } else if (attributes == null) {
+          Map<String, Integer> codes = provisional.get(j);
+          String value = row.getString(j + 1);
+          Integer code = codes.get(value);
+          if (code == null) {
+            code = codes.size();
+            codes.put(value, code);
+          }
+          discreteColumns[j][size] = code;
+        } else
+          discreteColumns[j][size] = ((DiscreteAttribute) attributes.get(j)).getCode(row.getString(j + 1));
+      }
+      size++;
+    }
+
+    /**
+     * Riporta le colonne alla dimensione esatta del numero di transazioni lette e, se gli attributi non
+     * erano noti, li costruisce e ricodifica le colonne discrete.
+     *
+     * @return Il numero di transazioni lette.
+     * @throws NoValueException Eccezione lanciata se una colonna numerica non ha alcun valore.
+     */
+    int finish() throws NoValueException {
+      if (size != capacity) resize(size);
+      if (attributes == null) {
+        attributes = new ArrayList<>(continuousColumns.length);
+        for (int j = 0; j < continuousColumns.length; j++) {
+          String name = schema.getColumn(j).getColumnName();
+          if (continuousColumns[j] != null) {
+            if (min[j] > max[j]) throw new NoValueException("Nessun valore per la colonna " + name);
+            attributes.add(new ContinuousAttribute(name, j, min[j], max[j]));
+          } else {
+            Map<String, Integer> codes = provisional.get(j);
+            DiscreteAttribute attribute = new DiscreteAttribute(name, j, codes.keySet());
+            int[] recode = new int[codes.size()];
+            for (Map.Entry<String, Integer> entry : codes.entrySet())
+              recode[entry.getValue()] = attribute.getCode(entry.getKey());
+            int[] column = discreteColumns[j];
+            for (int i = 0; i < size; i++)
+              column[i] = recode[column[i]];
+            attributes.add(attribute);
+          }
+        }
+        provisional = null;
+      }
+      return size;
+    }
+
+    /**
+     * Ridimensiona tutte le colonne, una alla volta.
+     *
+     * @param newCapacity La nuova capacità delle colonne.
+     */
+    private void resize(int newCapacity) {
+      for (int j = 0; j < continuousColumns.length; j++) {
+        if (continuousColumns[j] != null) continuousColumns[j] = Arrays.copyOf(continuousColumns[j], newCapacity);
+        else discreteColumns[j] = Arrays.copyOf(discreteColumns[j], newCapacity);
+      }
+      capacity = newCapacity;
+    }
   }
 
   /**
@@ -65,6 +314,27 @@ public class Data /*implements Serializable*/ {
     return numberOfExamples;
   }
 
+  /**
+   * Stima l'occupazione in memoria delle colonne e dei domini discreti, usata per il budget della DataCache
+   * e per la misura della memoria delle sessioni.
+   *
+   * @return Il numero stimato di byte occupati.
+   */
+  public long estimateSize() {
+    long size = 64;
+    for (int j = 0; j < attributeSet.size(); j++) {
+      if (continuousColumns[j] != null)
+        size += 16 + 8L * numberOfExamples;
+      else {
+        size += 16 + 4L * numberOfExamples;
+        DiscreteAttribute attribute = (DiscreteAttribute) attributeSet.get(j);
+        for (String value : attribute)
+          size += 80 + 2L * value.length(); // stringa, voce della mappa dei codici e riferimento nell'array
+      }
+    }
+    return size;
+  }
+
   /**
    * Restituisce il numero di attributi presenti in ciascuna tupla.
    *
@@ -82,7 +352,51 @@ public class Data /*implements Serializable*/ {
    * @return Il valore dell'attributo per la transazione e l'attributo specificati.
    */
   public Object getAttributeValue(int exampleIndex, int attributeIndex) {
-    return data.get(exampleIndex).get(attributeIndex);
+    if (continuousColumns[attributeIndex] != null)
+      return continuousColumns[attributeIndex][exampleIndex];
+    return ((DiscreteAttribute) attributeSet.get(attributeIndex)).getValue(discreteColumns[attributeIndex][exampleIndex]);
+  }
+
+  /**
+   * Restituisce il valore di un attributo continuo per una determinata transazione, senza boxing.
+   *
+   * @param exampleIndex   L'indice della transazione.
+   * @param attributeIndex L'indice dell'attributo continuo.
+   * @return Il valore dell'attributo continuo per la transazione specificata.
+   */
+  double getContinuousValue(int exampleIndex, int attributeIndex) {
+    return continuousColumns[attributeIndex][exampleIndex];
+  }
+
+  /**
+   * Restituisce la colonna dei valori di un attributo continuo, da usare in sola lettura.
+   *
+   * @param attributeIndex L'indice dell'attributo continuo.
+   * @return La colonna dei valori.
+   */
+  double[] getContinuousColumn(int attributeIndex) {
+    return continuousColumns[attributeIndex];
+  }
+
+  /**
+   * Restituisce la colonna dei codici di un attributo discreto, da usare in sola lettura.
+   *
+   * @param attributeIndex L'indice dell'attributo discreto.
+   * @return La colonna dei codici.
+   */
+  int[] getDiscreteColumn(int attributeIndex) {
+    return discreteColumns[attributeIndex];
+  }
+
+  /**
+   * Restituisce il codice del valore di un attributo discreto per una determinata transazione.
+   *
+   * @param exampleIndex   L'indice della transazione.
+   * @param attributeIndex L'indice dell'attributo discreto.
+   * @return Il codice del valore dell'attributo discreto per la transazione specificata.
+   */
+  int getDiscreteCode(int exampleIndex, int attributeIndex) {
+    return discreteColumns[attributeIndex][exampleIndex];
   }
 
   /**
@@ -104,13 +418,68 @@ public class Data /*implements Serializable*/ {
   public Tuple getItemSet(int index) {
     Tuple tuple = new Tuple(attributeSet.size());
     for (int i = 0; i < attributeSet.size(); i++)
-      if (attributeSet.get(i) instanceof ContinuousAttribute)
-        tuple.add(new ContinuousItem((ContinuousAttribute) attributeSet.get(i), (Double) data.get(index).get(i)), i);
-      else
-        tuple.add(new DiscreteItem((DiscreteAttribute) attributeSet.get(i), (String) data.get(index).get(i)), i);
+      if (continuousColumns[i] != null)
+        tuple.add(new ContinuousItem((ContinuousAttribute) attributeSet.get(i), continuousColumns[i][index]), i);
+      else {
+        tuple.add(new DiscreteItem((DiscreteAttribute) attributeSet.get(i), discreteColumns[i][index]), i);
+      }
     return tuple;
   }
 
+  /**
+   * Calcola la distanza tra una transazione e un centroide in forma piatta (vedi {@link Tuple#encode(double[])}),
+   * leggendo la transazione direttamente dalle colonne senza allocare oggetti.
+   * Il risultato coincide con quello di {@link Tuple#getDistance(Tuple)} sulle tuple corrispondenti.
+   *
+   * @param index    L'indice della transazione.
+   * @param centroid Il centroide in forma piatta.
+   * @return La distanza tra la transazione e il centroide.
+   */
+  public double distance(int index, double[] centroid) {
+    double distance = 0;
+    for (int j = 0; j < centroid.length; j++) {
+      double[] column = continuousColumns[j];
+      if (column != null)
+        distance += abs(((ContinuousAttribute) attributeSet.get(j)).getScaledValue(column[index]) - centroid[j]);
+      else if (discreteColumns[j][index] != (int) centroid[j])
+        distance += 1;
+    }
+    return distance;
+  }
+
+  /**
+   * Scrive una transazione in forma piatta (vedi {@link Tuple#encode(double[])}) senza creare la tupla corrispondente.
+   *
+   * @param index  L'indice della transazione.
+   * @param target L'array, di lunghezza pari al numero di attributi, in cui scrivere la transazione.
+   */
+  public void encode(int index, double[] target) {
+    for (int j = 0; j < target.length; j++) {
+      if (continuousColumns[j] != null)
+        target[j] = ((ContinuousAttribute) attributeSet.get(j)).getScaledValue(continuousColumns[j][index]);
+      else
+        target[j] = discreteColumns[j][index];
+    }
+  }
+
+  /**
+   * Calcola la distanza tra due centroidi in forma piatta (vedi {@link Tuple#encode(double[])}).
+   *
+   * @param a Il primo centroide in forma piatta.
+   * @param b Il secondo centroide in forma piatta.
+   * @return La distanza tra i due centroidi.
+   */
+  public double distance(double[] a, double[] b) {
+    double distance = 0;
+    for (int j = 0; j < a.length; j++) {
+      if (continuousColumns[j] != null)
+        distance += abs(a[j] - b[j]);
+      else if ((int) a[j] != (int) b[j])
+        distance += 1;
+    }
+    return distance;
+  }
+
   /**
    * Esegue un campionamento casuale di k indici di transazioni uniche nel set di dati.
    *
@@ -119,106 +488,144 @@ public class Data /*implements Serializable*/ {
    * @throws OutOfRangeSampleSize Eccezione lanciata se la dimensione del campione è fuori intervallo.
    */
   public int[] sampling(int k) throws OutOfRangeSampleSize {
-    if (k <= 0 || k > data.size()) {
-      throw new OutOfRangeSampleSize("Inserire k compreso tra 1 e " + data.size()
+    return sampling(k, System.currentTimeMillis());
+  }
+
+  /**
+   * Esegue un campionamento casuale di k indici di transazioni uniche nel set di dati,
+   * usando un seme esplicito così che il campionamento sia riproducibile.
+   *
+   * @param k    La dimensione del campione.
+   * @param seed Il seme del generatore di numeri casuali.
+   * @return Un array di indici di transazioni campionate casualmente.
+   * @throws OutOfRangeSampleSize Eccezione lanciata se la dimensione del campione è fuori intervallo.
+   */
+  public int[] sampling(int k, long seed) throws OutOfRangeSampleSize {
+    if (k <= 0 || k > numberOfExamples) {
+      throw new OutOfRangeSampleSize("Inserire k compreso tra 1 e " + numberOfExamples
       );
     }
     int[] centroidIndexes = new int[k]; //choose k random different centroids in data.
     // Esegue un campionamento casuale di indici di transazioni uniche nel set di dati.
     Random rand = new Random();
-    rand.setSeed(System.currentTimeMillis());
-    for (int i = 0; i < k; i++) {
-      boolean found;
-      int c;
-      do {
-        found = false;
-        c = rand.nextInt(getNumberOfExamples()); //Verifica che il centroide[c] non sia uguale a un centroide già memorizzato in CentroidIndexes
-        for (int j = 0; j < i; j++)
-          if (compare(centroidIndexes[j], c)) {
-            found = true;
-            break;
-          }
+    rand.setSeed(seed);
+    Map<Long, Integer> chosen = new HashMap<>(2 * k);
+    int i = 0;
+    // Fase 1: estrazione con reinserimento, scartando le transazioni già scelte tramite la loro impronta.
+    // Finché le transazioni distinte sono molte più di k gli scarti sono rari e bastano circa k estrazioni.
+    int attempts = 0, maxAttempts = 2 * k + 16;
+    while (i < k && attempts < maxAttempts) {
+      attempts++;
+      int c = rand.nextInt(numberOfExamples);
+      if (isNewCentroid(chosen, centroidIndexes, i, c))
+        centroidIndexes[i++] = c;
+    }
+    // Fase 2: se gli scarti sono frequenti (k vicino al numero di transazioni distinte) si prosegue senza
+    // reinserimento con un Fisher-Yates parziale, che termina dopo al più n estrazioni.
+    if (i < k) {
+      int[] permutation = new int[numberOfExamples];
+      for (int j = 0; j < numberOfExamples; j++)
+        permutation[j] = j;
+      for (int j = 0; j < numberOfExamples && i < k; j++) {
+        int r = j + rand.nextInt(numberOfExamples - j);
+        int c = permutation[r];
+        permutation[r] = permutation[j];
+        permutation[j] = c;
+        if (isNewCentroid(chosen, centroidIndexes, i, c))
+          centroidIndexes[i++] = c;
       }
-      while (found);
-      centroidIndexes[i] = c;
+      if (i < k)
+        throw new OutOfRangeSampleSize("Inserire k non superiore al numero di transazioni distinte (" + i + ")");
     }
     return centroidIndexes;
   }
 
   /**
-   * Confronta due centroidi specificati dagli indici delle transazioni i e j.
-   * Restituisce true se i centroidi sono uguali per tutti gli attributi, altrimenti false.
+   * Verifica che una transazione non sia uguale a una di quelle già scelte come centroidi e, in tal caso,
+   * ne registra l'impronta. Il confronto campo per campo avviene solo se le impronte coincidono.
    *
-   * @param i L'indice della prima transazione (centroide).
-   * @param j L'indice della seconda transazione (centroide).
-   * @return true se i centroidi sono uguali per tutti gli attributi, altrimenti false.
+   * @param chosen          Le impronte delle transazioni già scelte, associate alla transazione corrispondente.
+   * @param centroidIndexes Gli indici delle transazioni già scelte.
+   * @param size            Il numero di transazioni già scelte.
+   * @param c               L'indice della transazione candidata.
+   * @return true se la transazione candidata è diversa da tutte quelle già scelte.
    */
-  private boolean compare(int i, int j) {
-    for (int k = 0; k < attributeSet.size(); k++)
-      if (!data.get(i).get(k).equals(data.get(j).get(k)))
+  private boolean isNewCentroid(Map<Long, Integer> chosen, int[] centroidIndexes, int size, int c) {
+    Integer previous = chosen.putIfAbsent(fingerprint(c), c);
+    if (previous == null)
+      return true;
+    if (compare(previous, c))
+      return false;
+    // collisione di impronte tra transazioni diverse: verifica esaustiva
+    for (int j = 0; j < size; j++)
+      if (compare(centroidIndexes[j], c))
         return false;
     return true;
   }
 
   /**
-   * Calcola il prototipo per un attributo specifico in base a un insieme di indici di transazioni.
+   * Calcola un'impronta a 64 bit del contenuto di una transazione: transazioni uguali hanno la stessa impronta.
    *
-   * @param idList    L'insieme di indici di transazioni.
-   * @param attribute L'attributo per il quale calcolare il prototipo.
-   * @return Il prototipo calcolato per l'attributo.
+   * @param index L'indice della transazione.
+   * @return L'impronta della transazione.
    */
-  Object computePrototype(Set<Integer> idList, Attribute attribute) {
-    if (attribute instanceof ContinuousAttribute)
-      return computePrototype(idList, (ContinuousAttribute) attribute);
-    else
-      return computePrototype(idList, (DiscreteAttribute) attribute);
+  private long fingerprint(int index) {
+    long h = 1125899906842597L;
+    for (int j = 0; j < attributeSet.size(); j++) {
+      long v = continuousColumns[j] != null ? Double.doubleToLongBits(continuousColumns[j][index]) : discreteColumns[j][index];
+      h = (h ^ v) * 0x9E3779B97F4A7C15L;
+      h ^= h >>> 29;
+    }
+    return h;
   }
 
   /**
-   * Calcola il prototipo per un attributo discreto in base a un insieme di indici di transazioni.
+   * Confronta due centroidi specificati dagli indici delle transazioni i e j.
+   * Restituisce true se i centroidi sono uguali per tutti gli attributi, altrimenti false.
    *
-   * @param idList    L'insieme di indici di transazioni.
-   * @param attribute L'attributo discreto per il quale calcolare il prototipo.
-   * @return Il prototipo calcolato per l'attributo discreto.
+   * @param i L'indice della prima transazione (centroide).
+   * @param j L'indice della seconda transazione (centroide).
+   * @return true se i centroidi sono uguali per tutti gli attributi, altrimenti false.
    */
-  String computePrototype(Set<Integer> idList, DiscreteAttribute attribute) {
-    int max = 0, tmp;
-    String prototype = "";
-    for (String a : attribute) {
-      tmp = attribute.frequency(this, idList, a);
-      if (tmp > max) {
-        max = tmp;
-        prototype = a;
-      }
-    }
-    return prototype;
+  private boolean compare(int i, int j) {
+    for (int k = 0; k < attributeSet.size(); k++)
+      if (continuousColumns[k] != null) {
+        if (Double.compare(continuousColumns[k][i], continuousColumns[k][j]) != 0)
+          return false;
+      } else if (discreteColumns[k][i] != discreteColumns[k][j])
+        return false;
+    return true;
   }
 
   /**
-   * Calcola il prototipo per un attributo continuo in base a un insieme di indici di transazioni.
+   * Restituisce un riepilogo del set di dati: il numero di transazioni e lo schema, con gli estremi degli
+   * attributi continui e il numero di valori degli attributi discreti. A differenza di toString non elenca
+   * le transazioni, così che la dimensione non dipenda dal numero di righe.
    *
-   * @param idList    L'insieme di indici di transazioni.
-   * @param attribute L'attributo continuo per il quale calcolare il prototipo.
-   * @return Il prototipo calcolato per l'attributo continuo.
+   * @return Il riepilogo in forma di stringa.
    */
-  Double computePrototype(Set<Integer> idList, ContinuousAttribute attribute) {
-    double sum = 0;
-    for (int i : idList) {
-      sum += (double) data.get(i).get(attribute.getIndex());
+  public String summary() {
+    StringBuilder str = new StringBuilder("Transazioni: ").append(numberOfExamples).append("\nAttributi:\n");
+    for (Attribute attribute : attributeSet) {
+      str.append(attribute.getName());
+      if (attribute instanceof ContinuousAttribute continuous)
+        str.append(": continuo [").append(continuous.getMin()).append(", ").append(continuous.getMax()).append("]\n");
+      else
+        str.append(": discreto, ").append(((DiscreteAttribute) attribute).getNumberOfDistinctValues()).append(" valori\n");
     }
-    return sum / (double) idList.size();
+    return str.toString();
   }
 
   public String toString() {
-    String s = "";
+    StringBuilder s = new StringBuilder();
     for (int i = 0; i < attributeSet.size(); i++)
-      s += attributeSet.get(i).getName() + (i == attributeSet.size() - 1 ? "\n" : ", ");
+      s.append(attributeSet.get(i).getName()).append(i == attributeSet.size() - 1 ? "\n" : ", ");
     for (int i = 0; i < numberOfExamples; i++) {
-      s += (i + 1) + ": ";
+      s.append(i + 1).append(": ");
       for (int j = 0; j < attributeSet.size(); j++)
-        s += data.get(i).get(j) + (j == attributeSet.size() - 1 ? "\n" : ", ");
+        s.append(getAttributeValue(i, j)).append(j == attributeSet.size() - 1 ? "\n" : ", ");
     }
-    return s;
+    return s.toString();
   }
 
 }
@@ -0,0 +1,339 @@
+package data;
+
+import database.DatabaseConnectionException;
+import database.DbAccess;
+import database.EmptySetException;
+import database.NoValueException;
+import database.TableData;
+import database.TableSchema;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * La classe DataCache mantiene per l'intero server gli oggetti Data già caricati, indicizzati per server,
+ * database e tabella, così che sessioni diverse condividano la stessa copia in sola lettura.
+ * Le richieste contemporanee della stessa tabella attendono un unico caricamento; quando l'occupazione
+ * stimata supera il budget vengono rimossi i dati usati meno di recente.
+ * Prima di restituire una copia in cache ne viene verificata l'attualità con una query di controllo eseguita
+ * con le credenziali del richiedente, che quindi deve poter leggere la tabella.
+ */
+public class DataCache {
+
+  /**
+   * L'enum Validation rappresenta i controlli disponibili per stabilire se una tabella è cambiata
+   * dal momento del caricamento.
+   */
+  public enum Validation {
+    /**
+     * NONE non esegue controlli: la copia in cache resta valida fino all'invalidazione esplicita.
+     */
+    NONE,
+    /**
+     * COUNT confronta il numero di righe della tabella: è il controllo predefinito, economico ma cieco alle
+     * modifiche che non cambiano il numero di righe.
+     */
+    COUNT,
+    /**
+     * CHECKSUM confronta la checksum del contenuto della tabella (CHECKSUM TABLE), che rileva qualunque modifica
+     * ma rilegge l'intera tabella a ogni richiesta; va quindi scelto esplicitamente.
+     */
+    CHECKSUM
+  }
+
+  /**
+   * La classe Entry rappresenta un oggetto Data in cache, o in caricamento, con la versione della tabella
+   * letta prima del caricamento e l'occupazione stimata.
+   */
+  private static class Entry {
+
+    /**
+     * Il caricamento dell'oggetto Data.
+     */
+    final CompletableFuture<Data> data = new CompletableFuture<>();
+
+    /**
+     * Versione della tabella (numero di righe o checksum) al momento del caricamento.
+     */
+    final long version;
+
+    /**
+     * Occupazione stimata in byte, 0 finché il caricamento non è completato.
+     */
+    long size = 0;
+
+    /**
+     * Costruttore della classe Entry.
+     *
+     * @param version Versione della tabella.
+     */
+    Entry(long version) {
+      this.version = version;
+    }
+  }
+
+  /**
+   * Dati in cache, dal meno al più recentemente usato.
+   */
+  private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Budget di memoria della cache in byte.
+   */
+  private static long budget = 256L * 1024 * 1024;
+
+  /**
+   * Occupazione stimata dei dati in cache in byte.
+   */
+  private static long used = 0;
+
+  /**
+   * Controllo di attualità delle copie in cache.
+   */
+  private static Validation validation = Validation.COUNT;
+
+  /**
+   * Contatori delle richieste servite dalla cache e dei caricamenti eseguiti.
+   */
+  private static long hits = 0, loads = 0;
+
+  /**
+   * Imposta il budget di memoria della cache.
+   *
+   * @param bytes Budget in byte, 0 per disattivare la cache.
+   */
+  public static synchronized void setBudget(long bytes) {
+    if (bytes < 0) throw new IllegalArgumentException("Il budget della cache non può essere negativo");
+    budget = bytes;
+    evict();
+  }
+
+  /**
+   * Imposta il controllo di attualità delle copie in cache.
+   *
+   * @param check Il controllo di attualità.
+   */
+  public static synchronized void setValidation(Validation check) {
+    validation = check;
+  }
+
+  /**
+   * Restituisce il controllo di attualità delle copie in cache.
+   *
+   * @return Il controllo di attualità.
+   */
+  public static synchronized Validation getValidation() {
+    return validation;
+  }
+
+  /**
+   * Restituisce l'oggetto Data della tabella specificata, dalla cache se la copia è ancora attuale,
+   * altrimenti caricandolo dal database. Se un'altra sessione sta già caricando la stessa versione
+   * della tabella, ne attende il risultato invece di ripetere il caricamento.
+   *
+   * @param server   Il server del database.
+   * @param database Il nome del database.
+   * @param table    Il nome della tabella.
+   * @param userId   L'ID utente per la connessione al database.
+   * @param password La password per la connessione al database.
+   * @return L'oggetto Data della tabella, da usare in sola lettura.
+   * @throws DatabaseConnectionException Eccezione lanciata in caso di errore nella connessione al database.
+   * @throws SQLException                Eccezione lanciata in caso di errore SQL.
+   * @throws NoValueException             Eccezione lanciata in caso di mancanza di valori.
+   * @throws EmptySetException            Eccezione lanciata in caso di insieme vuoto.
+   */
+  public static Data get(String server, String database, String table, String userId, String password)
+      throws DatabaseConnectionException, SQLException, NoValueException, EmptySetException {
+    long version = readVersion(server, database, table, userId, password);
+    String key = server + "/" + database + "/" + table;
+    Entry entry;
+    boolean loader = false;
+    synchronized (DataCache.class) {
+      entry = entries.get(key);
+      if (entry == null || entry.version != version || entry.data.isCompletedExceptionally()) {
+        if (entry != null) remove(key);
+        entry = new Entry(version);
+        entries.put(key, entry);
+        loader = true;
+        loads++;
+      } else
+        hits++;
+    }
+    if (loader) {
+      try {
+        Data data = load(server, database, table, userId, password, version);
+        entry.data.complete(data);
+        synchronized (DataCache.class) {
+          if (entries.get(key) == entry) {
+            entry.size = data.estimateSize();
+            used += entry.size;
+            evict();
+          }
+        }
+        return data;
+      } catch (DatabaseConnectionException | SQLException | NoValueException | EmptySetException | RuntimeException | Error e) {
+        entry.data.completeExceptionally(e);
+        synchronized (DataCache.class) {
+          if (entries.get(key) == entry) entries.remove(key);
+        }
+        throw e;
+      }
+    }
+    return await(entry);
+  }
+
+  /**
+   * Carica l'oggetto Data della tabella dalla copia su disco, se il criterio di DataSnapshot la ritiene attuale,
+   * altrimenti dal database, salvandone poi una nuova copia su disco.
+   * Gli errori di lettura o scrittura della copia non impediscono il caricamento dal database.
+   *
+   * @param server   Il server del database.
+   * @param database Il nome del database.
+   * @param table    Il nome della tabella.
+   * @param userId   L'ID utente per la connessione al database.
+   * @param password La password per la connessione al database.
+   * @param version  La versione corrente della tabella.
+   * @return L'oggetto Data della tabella.
+   * @throws DatabaseConnectionException Eccezione lanciata in caso di errore nella connessione al database.
+   * @throws SQLException                Eccezione lanciata in caso di errore SQL.
+   * @throws NoValueException             Eccezione lanciata in caso di mancanza di valori.
+   * @throws EmptySetException            Eccezione lanciata in caso di insieme vuoto.
+   */
+  private static Data load(String server, String database, String table, String userId, String password, long version)
+      throws DatabaseConnectionException, SQLException, NoValueException, EmptySetException {
+    if (!DataSnapshot.isEnabled())
+      return new Data(server, database, table, userId, password);
+    String fileName = DataSnapshot.fileName(server, database, table);
+    try {
+      Data data = DataSnapshot.read(fileName, version);
+      if (data != null) return data;
+    } catch (IOException e) {
+      System.out.println("Copia su disco non leggibile: " + e.getMessage());
+    }
+    Data data = new Data(server, database, table, userId, password);
+    try {
+      DataSnapshot.write(data, fileName, version);
+    } catch (IOException e) {
+      System.out.println("Copia su disco non salvata: " + e.getMessage());
+    }
+    return data;
+  }
+
+  /**
+   * Attende il caricamento eseguito da un'altra sessione, rilanciandone l'eventuale eccezione.
+   *
+   * @param entry La voce in caricamento.
+   * @return L'oggetto Data caricato.
+   * @throws DatabaseConnectionException Eccezione lanciata in caso di errore nella connessione al database.
+   * @throws SQLException                Eccezione lanciata in caso di errore SQL.
+   * @throws NoValueException             Eccezione lanciata in caso di mancanza di valori.
+   * @throws EmptySetException            Eccezione lanciata in caso di insieme vuoto.
+   */
+  private static Data await(Entry entry) throws DatabaseConnectionException, SQLException, NoValueException, EmptySetException {
+    try {
+      return entry.data.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DatabaseConnectionException("[!] Attesa del caricamento interrotta");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof DatabaseConnectionException) throw (DatabaseConnectionException) cause;
+      if (cause instanceof SQLException) throw (SQLException) cause;
+      if (cause instanceof NoValueException) throw (NoValueException) cause;
+      if (cause instanceof EmptySetException) throw (EmptySetException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * Legge la versione corrente della tabella con le credenziali del richiedente.
+   *
+   * @param server   Il server del database.
+   * @param database Il nome del database.
+   * @param table    Il nome della tabella.
+   * @param userId   L'ID utente per la connessione al database.
+   * @param password La password per la connessione al database.
+   * @return Il numero di righe o la checksum della tabella, secondo il controllo configurato; 0 con NONE.
+   * @throws DatabaseConnectionException Eccezione lanciata in caso di errore nella connessione al database.
+   * @throws SQLException                Eccezione lanciata in caso di errore SQL.
+   * @throws NoValueException             Eccezione lanciata se la tabella non esiste.
+   */
+  private static long readVersion(String server, String database, String table, String userId, String password)
+      throws DatabaseConnectionException, SQLException, NoValueException {
+    DbAccess db = new DbAccess(server, database, userId, password);
+    db.initConnection();
+    try {
+      TableData td = new TableData(db);
+      return switch (validation) {
+        case NONE -> {
+          new TableSchema(db, table); // verifica comunque che il richiedente possa leggere la tabella
+          yield 0;
+        }
+        case COUNT -> td.countRows(table);
+        case CHECKSUM -> td.getChecksum(table);
+      };
+    } finally {
+      db.closeConnection();
+    }
+  }
+
+  /**
+   * Rimuove dalla cache la tabella specificata; il caricamento successivo la rilegge dal database.
+   *
+   * @param server   Il server del database.
+   * @param database Il nome del database.
+   * @param table    Il nome della tabella.
+   */
+  public static synchronized void invalidate(String server, String database, String table) {
+    remove(server + "/" + database + "/" + table);
+  }
+
+  /**
+   * Svuota la cache.
+   */
+  public static synchronized void invalidateAll() {
+    entries.clear();
+    used = 0;
+  }
+
+  /**
+   * Restituisce una descrizione dello stato della cache.
+   *
+   * @return Lo stato della cache in forma di stringa.
+   */
+  public static synchronized String getStatistics() {
+    return "Cache: tabelle=" + entries.size() + " occupazione=" + used + "/" + budget + " byte"
+        + " richieste servite=" + hits + " caricamenti=" + loads;
+  }
+
+  /**
+   * Rimuove una voce aggiornando l'occupazione; va invocato tenendo il lock della classe.
+   *
+   * @param key La chiave della voce.
+   */
+  private static void remove(String key) {
+    Entry entry = entries.remove(key);
+    if (entry != null) used -= entry.size;
+  }
+
+  /**
+   * Rimuove i dati usati meno di recente finché l'occupazione non rientra nel budget; le voci ancora in
+   * caricamento non vengono rimosse. Va invocato tenendo il lock della classe.
+   */
+  private static void evict() {
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while (used > budget && it.hasNext()) {
+      Entry entry = it.next().getValue();
+      if (!entry.data.isDone()) continue;
+      it.remove();
+      used -= entry.size;
+    }
+  }
+}
@@ -0,0 +1,279 @@
+package data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * La classe DataSnapshot salva su disco e rilegge una copia per colonne di un oggetto Data, così che una tabella
+ * non cambiata non debba essere riletta dal database.
+ * Il file contiene un'intestazione con lo schema (estremi degli attributi continui, domini degli attributi
+ * discreti), la versione della tabella e l'istante di creazione, seguita da un blocco a larghezza fissa
+ * per colonna, allineato a 8 byte: 8 byte per valore continuo, 4 byte per codice discreto.
+ * I blocchi vengono scritti con FileChannel.write a pezzi di CHUNK byte e, in lettura, mappati con FileChannel.map
+ * e copiati nella colonna con un unico trasferimento in blocco, senza decodifica riga per riga. Poiché Data tiene
+ * le colonne in array, la rilettura non è pigra: legge l'intero file una volta in sequenza e occupa nello heap
+ * quanto la tabella letta dal database; il risparmio è la query e la conversione dei valori. La scrittura non
+ * usa file mappati perché un file mappato non può essere rinominato su tutti i sistemi (ad esempio Windows)
+ * finché la mappatura non viene rilasciata dal garbage collector.
+ */
+public class DataSnapshot {
+
+  /**
+   * L'enum Policy rappresenta i criteri con cui stabilire se una copia su disco può sostituire la lettura
+   * dal database.
+   */
+  public enum Policy {
+    /**
+     * OFF non legge né scrive copie su disco.
+     */
+    OFF,
+    /**
+     * VERSION usa la copia se la versione della tabella (vedi DataCache.Validation) coincide con quella salvata;
+     * richiede un controllo diverso da NONE, con cui la versione letta è sempre 0.
+     */
+    VERSION,
+    /**
+     * MAX_AGE usa la copia se è stata creata da meno del tempo massimo impostato.
+     */
+    MAX_AGE,
+    /**
+     * ALWAYS usa la copia se esiste, senza altre verifiche.
+     */
+    ALWAYS
+  }
+
+  /**
+   * Identificativo del formato all'inizio del file ("KMDS").
+   */
+  private static final int MAGIC = 0x4B4D4453;
+
+  /**
+   * Versione del formato.
+   */
+  private static final int FORMAT = 1;
+
+  /**
+   * Dimensione in byte del buffer con cui vengono scritte le colonne.
+   */
+  private static final int CHUNK = 64 * 1024;
+
+  /**
+   * Cartella delle copie su disco.
+   */
+  private static final String DIRECTORY = "KMeansServer\\Snapshot\\";
+
+  /**
+   * Criterio di uso delle copie su disco.
+   */
+  private static Policy policy = Policy.OFF;
+
+  /**
+   * Età massima in millisecondi di una copia con il criterio MAX_AGE.
+   */
+  private static long maxAge = 0;
+
+  /**
+   * Imposta il criterio di uso delle copie su disco.
+   *
+   * @param staleness Il criterio di uso.
+   * @param millis    Età massima in millisecondi, usata solo con MAX_AGE.
+   */
+  public static synchronized void setPolicy(Policy staleness, long millis) {
+    if (millis < 0) throw new IllegalArgumentException("L'età massima non può essere negativa");
+    policy = staleness;
+    maxAge = millis;
+  }
+
+  /**
+   * Restituisce il criterio di uso delle copie su disco.
+   *
+   * @return Il criterio di uso.
+   */
+  public static Policy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Indica se le copie su disco sono attive.
+   *
+   * @return true se il criterio non è OFF.
+   */
+  static boolean isEnabled() {
+    return policy != Policy.OFF;
+  }
+
+  /**
+   * Restituisce il nome del file della copia della tabella specificata.
+   *
+   * @param server   Il server del database.
+   * @param database Il nome del database.
+   * @param table    Il nome della tabella.
+   * @return Il nome del file.
+   */
+  static String fileName(String server, String database, String table) {
+    return DIRECTORY + (server + "_" + database + "_" + table).replaceAll("[^A-Za-z0-9_.-]", "_") + ".snap";
+  }
+
+  /**
+   * Salva una copia dell'oggetto Data. Il file viene scritto con un nome temporaneo e poi rinominato,
+   * così che un lettore non veda mai una copia incompleta.
+   *
+   * @param data     L'oggetto Data da salvare.
+   * @param fileName Il nome del file.
+   * @param version  La versione della tabella al momento della lettura.
+   * @throws IOException Eccezione lanciata in caso di errori di I/O.
+   */
+  static void write(Data data, String fileName, long version) throws IOException {
+    int n = data.getNumberOfExamples();
+    int m = data.getNumberOfAttributes();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream header = new DataOutputStream(bytes);
+    header.writeLong(version);
+    header.writeLong(System.currentTimeMillis());
+    header.writeInt(n);
+    header.writeInt(m);
+    for (int j = 0; j < m; j++) {
+      Attribute attribute = data.getAttribute(j);
+      header.writeUTF(attribute.getName());
+      if (attribute instanceof ContinuousAttribute continuous) {
+        header.writeByte(0);
+        header.writeDouble(continuous.getMin());
+        header.writeDouble(continuous.getMax());
+      } else {
+        DiscreteAttribute discrete = (DiscreteAttribute) attribute;
+        header.writeByte(1);
+        header.writeInt(discrete.getNumberOfDistinctValues());
+        for (String value : discrete) header.writeUTF(value);
+      }
+    }
+    header.flush();
+    int headerLength = (int) align(12 + bytes.size());
+    Path path = Paths.get(fileName);
+    Path tmp = Paths.get(fileName + ".tmp");
+    if (path.getParent() != null) Files.createDirectories(path.getParent());
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer start = ByteBuffer.allocate(headerLength);
+      start.putInt(MAGIC).putInt(FORMAT).putInt(headerLength).put(bytes.toByteArray());
+      start.clear();
+      writeFully(channel, start);
+      ByteBuffer buffer = ByteBuffer.allocate(CHUNK);
+      for (int j = 0; j < m; j++) {
+        if (data.getAttribute(j) instanceof ContinuousAttribute) {
+          double[] column = data.getContinuousColumn(j);
+          for (int i = 0; i < n; ) {
+            int count = Math.min(n - i, CHUNK / 8);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(column, i, count);
+            buffer.limit(8 * count);
+            writeFully(channel, buffer);
+            i += count;
+          }
+        } else {
+          int[] column = data.getDiscreteColumn(j);
+          for (int i = 0; i < n; ) {
+            int count = Math.min(n - i, CHUNK / 4);
+            buffer.clear();
+            buffer.asIntBuffer().put(column, i, count);
+            buffer.limit(4 * count);
+            writeFully(channel, buffer);
+            i += count;
+          }
+          if (n % 2 != 0) writeFully(channel, ByteBuffer.allocate(4)); // allineamento a 8 byte del blocco successivo
+        }
+      }
+      channel.force(true);
+    }
+    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Rilegge una copia dell'oggetto Data se esiste e soddisfa il criterio di uso impostato.
+   * Ogni colonna viene copiata per intero in un nuovo array prima di restituire l'oggetto, quindi il costo è
+   * una lettura sequenziale del file e 8 o 4 byte di heap per valore.
+   *
+   * @param fileName Il nome del file.
+   * @param version  La versione corrente della tabella.
+   * @return L'oggetto Data o null se la copia non esiste o non è utilizzabile.
+   * @throws IOException Eccezione lanciata in caso di errori di I/O o di file non valido.
+   */
+  static Data read(String fileName, long version) throws IOException {
+    if (policy == Policy.OFF) return null;
+    try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 12));
+      if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT)
+        throw new IOException("Formato della copia non valido: " + fileName);
+      int headerLength = buffer.getInt();
+      byte[] bytes = new byte[headerLength - 12];
+      channel.map(FileChannel.MapMode.READ_ONLY, 12, bytes.length).get(bytes);
+      DataInputStream header = new DataInputStream(new ByteArrayInputStream(bytes));
+      long savedVersion = header.readLong();
+      long created = header.readLong();
+      if (policy == Policy.VERSION && savedVersion != version) return null;
+      if (policy == Policy.MAX_AGE && System.currentTimeMillis() - created > maxAge) return null;
+      int n = header.readInt();
+      int m = header.readInt();
+      List<Attribute> attributes = new ArrayList<>(m);
+      double[][] continuousColumns = new double[m][];
+      int[][] discreteColumns = new int[m][];
+      long offset = headerLength;
+      for (int j = 0; j < m; j++) {
+        String name = header.readUTF();
+        if (header.readByte() == 0) {
+          attributes.add(new ContinuousAttribute(name, j, header.readDouble(), header.readDouble()));
+          continuousColumns[j] = new double[n];
+          channel.map(FileChannel.MapMode.READ_ONLY, offset, 8L * n).asDoubleBuffer().get(continuousColumns[j]);
+          offset += align(8L * n);
+        } else {
+          int count = header.readInt();
+          Set<String> values = new HashSet<>(count * 2);
+          for (int v = 0; v < count; v++) values.add(header.readUTF());
+          attributes.add(new DiscreteAttribute(name, j, values));
+          discreteColumns[j] = new int[n];
+          channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * n).asIntBuffer().get(discreteColumns[j]);
+          offset += align(4L * n);
+        }
+      }
+      return new Data(attributes, continuousColumns, discreteColumns, n);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Scrive l'intero contenuto del buffer, dalla posizione al limite, alla posizione corrente del canale.
+   *
+   * @param channel Il canale di destinazione.
+   * @param buffer  Il buffer da scrivere.
+   * @throws IOException Eccezione lanciata in caso di errori di I/O.
+   */
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) channel.write(buffer);
+  }
+
+  /**
+   * Arrotonda una lunghezza al multiplo di 8 successivo, così che ogni blocco inizi allineato.
+   *
+   * @param length La lunghezza in byte.
+   * @return La lunghezza arrotondata.
+   */
+  private static long align(long length) {
+    return (length + 7) & ~7L;
+  }
+}
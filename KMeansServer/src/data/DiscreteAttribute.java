@@ -1,18 +1,39 @@
 package data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * La classe DiscreteAttribute rappresenta un attributo discreto che estende la classe Attribute e implementa l'interfaccia Iterable.
  * Gli attributi discreti hanno un insieme di valori del dominio memorizzati seguendo un ordine lessicografico.
+ * Il dominio funge da dizionario stabile valore-codice: le transazioni, i centroidi e i prototipi memorizzano
+ * il codice intero del valore, che viene decodificato in stringa solo per la presentazione dei risultati.
  */
 public class DiscreteAttribute extends Attribute implements Iterable<String> {
   /**
-   * Insieme di oggetti String rappresentanti i valori del dominio discreto.
-   * I valori sono memorizzati seguendo un ordine lessicografico.
+   * Numero di versione della forma serializzata, fissato a quello della versione originale della classe,
+   * in cui values era un insieme ordinato di stringhe.
    */
-  private final Set<String> values;// Array di oggetti String, uno per ciascun valore del dominio discreto. I valori del dominio sono memorizzati in values seguendo un ordine lessicografico.
+  private static final long serialVersionUID = 746074152585676088L;
+
+  /**
+   * Array di oggetti String rappresentanti i valori del dominio discreto.
+   * I valori sono memorizzati seguendo un ordine lessicografico: la posizione di un valore
+   * nell'array è il codice intero con cui il valore è memorizzato nelle colonne di Data.
+   * Non è final perché viene assegnato da readObject.
+   */
+  private String[] values;
+
+  /**
+   * Dizionario inverso che associa a ciascun valore del dominio il proprio codice (posizione in values).
+   * Non viene salvato: è ricostruito da values dopo la lettura.
+   */
+  private transient Map<String, Integer> codes;
 
   /**
    * Costruttore della classe DiscreteAttribute.
@@ -23,7 +44,37 @@ public class DiscreteAttribute extends Attribute implements Iterable<String> {
    */
   DiscreteAttribute(String name, int index, Set<String> values) {
     super(name, index);
-    this.values = values;
+    this.values = values.toArray(new String[0]);
+    Arrays.sort(this.values);
+    buildCodes();
+  }
+
+  /**
+   * Costruisce il dizionario inverso da values.
+   */
+  private void buildCodes() {
+    codes = new HashMap<>(values.length * 2);
+    for (int code = 0; code < values.length; code++)
+      codes.put(values[code], code);
+  }
+
+  /**
+   * Legge l'attributo accettando sia la forma attuale, con values array di stringhe, sia quella originale,
+   * con values insieme ordinato di stringhe, e ricostruisce il dizionario inverso.
+   *
+   * @param in Lo stream da cui leggere.
+   * @throws IOException            Eccezione lanciata in caso di errori di I/O.
+   * @throws ClassNotFoundException Eccezione lanciata se la classe di un campo non è disponibile.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    Object domain = in.readFields().get("values", null);
+    if (domain instanceof String[] array) {
+      values = array;
+    } else {
+      values = ((Set<?>) domain).toArray(new String[0]);
+      Arrays.sort(values);
+    }
+    buildCodes();
   }
 
   /**
@@ -32,7 +83,7 @@ public class DiscreteAttribute extends Attribute implements Iterable<String> {
    * @return Un iteratore per gli elementi dell'insieme di valori del dominio.
    */
   public Iterator<String> iterator() {
-    return this.values.iterator();
+    return Arrays.asList(values).iterator();
   }
 
   /**
@@ -41,23 +92,45 @@ public class DiscreteAttribute extends Attribute implements Iterable<String> {
    * @return Il numero di valori distinti nel dominio dell'attributo discreto.
    */
   int getNumberOfDistinctValues() {
-    return values.size();
+    return values.length;
+  }
+
+  /**
+   * Restituisce il codice intero associato a un valore del dominio discreto.
+   *
+   * @param v Il valore del dominio di cui ottenere il codice.
+   * @return Il codice del valore, negativo se il valore non appartiene al dominio.
+   */
+  int getCode(String v) {
+    Integer code = codes.get(v);
+    return code == null ? -1 : code;
   }
 
   /**
-   * Calcola la frequenza di un valore specifico nel set di dati per l'attributo discreto.
+   * Restituisce il valore del dominio discreto associato a un codice intero.
    *
-   * @param data   L'insieme di dati contenente le transazioni.
-   * @param idList L'insieme di indici delle transazioni su cui calcolare la frequenza.
-   * @param v      Il valore per il quale calcolare la frequenza.
-   * @return La frequenza del valore specifico nell'attributo discreto.
-   */
-  int frequency(Data data, Set<Integer> idList, String v) {
-    int count = 0;
-    for (int i : idList)
-      if (data.getAttributeValue(i, this.getIndex()).equals(v))
-        count++;
-    return count;
+   * @param code Il codice del valore.
+   * @return Il valore del dominio corrispondente al codice.
+   */
+  String getValue(int code) {
+    return values[code];
+  }
+
+  /**
+   * Restituisce il codice più frequente di un istogramma; a parità di frequenza prevale il codice minore.
+   * Gli istogrammi per cluster di ClusterAccumulator vengono letti con questo metodo.
+   *
+   * @param counts L'array contenente l'istogramma.
+   * @param offset La posizione di counts corrispondente al codice 0.
+   * @param length Il numero di codici dell'istogramma.
+   * @return Il codice con frequenza massima.
+   */
+  static int mode(int[] counts, int offset, int length) {
+    int prototype = 0;
+    for (int v = 1; v < length; v++)
+      if (counts[offset + v] > counts[offset + prototype])
+        prototype = v;
+    return prototype;
   }
 
 }
@@ -1,31 +1,87 @@
 package data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 /**
  * La classe DiscreteItem rappresenta un elemento di dati associato a un attributo discreto,
  * estendendo la classe astratta Item.
- * Gli elementi discreti contengono un valore che deve appartenere al dominio discreto dell'attributo associato.
+ * Gli elementi discreti contengono il codice di un valore che deve appartenere al dominio discreto
+ * dell'attributo associato; la stringa corrispondente viene ricavata solo quando l'elemento viene mostrato.
  */
 public class DiscreteItem extends Item {
 
+  /**
+   * Numero di versione della forma serializzata, fissato a quello della versione originale della classe.
+   */
+  private static final long serialVersionUID = -1546258941180953221L;
+
+  /**
+   * Codice del valore assegnato all'attributo discreto nell'item.
+   */
+  private int code;
+
   /**
    * Costruttore della classe DiscreteItem.
    *
    * @param attribute L'attributo discreto associato all'elemento di dati.
-   * @param value     Il valore dell'elemento di dati per l'attributo discreto.
+   * @param code      Il codice del valore dell'elemento di dati per l'attributo discreto.
+   */
+  DiscreteItem(DiscreteAttribute attribute, int code) {
+    super(attribute);
+    this.code = code;
+  }
+
+  /**
+   * Legge l'item; per un modello salvato con la forma originale il codice viene ricavato dalla stringa del valore.
+   *
+   * @param in Lo stream da cui leggere.
+   * @throws IOException            Eccezione lanciata in caso di errori di I/O.
+   * @throws ClassNotFoundException Eccezione lanciata se la classe di un campo non è disponibile.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    Object legacy = takeLegacyValue();
+    if (legacy != null)
+      code = ((DiscreteAttribute) getAttribute()).getCode((String) legacy);
+  }
+
+  /**
+   * Restituisce il valore dell'elemento decodificato tramite il dizionario dell'attributo.
+   *
+   * @return Il valore dell'elemento di dati.
+   */
+  public Object getValue() {
+    return ((DiscreteAttribute) getAttribute()).getValue(code);
+  }
+
+  /**
+   * Restituisce il codice del valore assegnato all'attributo discreto.
+   *
+   * @return Il codice del valore dell'elemento di dati.
+   */
+  int getCode() {
+    return code;
+  }
+
+  /**
+   * Imposta il codice del valore assegnato all'attributo discreto.
+   *
+   * @param code Il nuovo codice dell'elemento di dati.
    */
-  DiscreteItem(DiscreteAttribute attribute, String value) {
-    super(attribute, value);
+  void setCode(int code) {
+    this.code = code;
   }
 
   /**
    * Calcola la distanza tra due elementi di dati basata sugli attributi discreti.
-   * La distanza è 0 se i valori sono uguali, altrimenti è 1.
+   * La distanza è 0 se i codici dei valori sono uguali, altrimenti è 1.
    *
-   * @param a L'oggetto da confrontare con l'elemento corrente.
+   * @param a L'elemento da confrontare con l'elemento corrente.
    * @return La distanza tra gli elementi di dati basata sugli attributi discreti.
    */
-  double distance(Object a) {
-    return this.getValue().equals(a) ? 0 : 1;
+  double distance(Item a) {
+    return code == ((DiscreteItem) a).code ? 0 : 1;
   }
 
 }
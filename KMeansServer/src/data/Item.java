@@ -1,34 +1,66 @@
 package data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.Set;
 
 /**
  * La classe astratta Item rappresenta un elemento di dati associato a un attributo,
  * fornendo un'implementazione di base condivisa per elementi di dati discreti e continui.
- * Ogni elemento è caratterizzato da un attributo e un valore assegnato a quell'attributo.
+ * Ogni elemento è caratterizzato da un attributo e un valore assegnato a quell'attributo;
+ * la rappresentazione del valore è definita dalle sottoclassi.
  */
 public abstract class Item implements Serializable {
   /**
-   * Attributo coinvolto nell'item.
+   * Numero di versione della forma serializzata. È quello calcolato per la versione originale della classe,
+   * in cui il valore era un campo di Item: in questo modo i modelli salvati in Salvataggi restano leggibili.
    */
-  private final Attribute attribute;
+  private static final long serialVersionUID = 1140809218720993349L;
 
   /**
-   * Valore assegnato all'attributo nell'item.
+   * Attributo coinvolto nell'item (non final perché assegnato da readObject).
+   */
+  private Attribute attribute;
+
+  /**
+   * Valore letto da un modello salvato con la forma originale, convertito dalla sottoclasse al termine della lettura;
+   * null per i modelli salvati con la forma attuale.
    */
-  private Object value;
+  private transient Object legacyValue;
 
   /**
    * Costruttore della classe astratta Item.
    *
    * @param attribute L'attributo associato all'elemento di dati.
-   * @param value     Il valore assegnato all'attributo dell'elemento di dati.
    */
-  Item(Attribute attribute, Object value) {
+  Item(Attribute attribute) {
     this.attribute = attribute;
-    this.value = value;
   }
+  /**
+   * Legge l'item accettando sia la forma attuale sia quella originale, che conteneva anche il campo value.
+   *
+   * @param in Lo stream da cui leggere.
+   * @throws IOException            Eccezione lanciata in caso di errori di I/O.
+   * @throws ClassNotFoundException Eccezione lanciata se la classe di un campo non è disponibile.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    attribute = (Attribute) fields.get("attribute", null);
+    if (fields.getObjectStreamClass().getField("value") != null)
+      legacyValue = fields.get("value", null);
+  }
+
+  /**
+   * Restituisce il valore letto da un modello salvato con la forma originale e lo dimentica.
+   *
+   * @return Il valore originale, oppure null se l'item è stato salvato con la forma attuale.
+   */
+  Object takeLegacyValue() {
+    Object value = legacyValue;
+    legacyValue = null;
+    return value;
+  }
+
   /**
    * Attributo coinvolto nell'item.
    */
@@ -38,9 +70,7 @@ public abstract class Item implements Serializable {
   /**
    * Valore assegnato all'attributo nell'item.
    */
-  public Object getValue() {
-    return value;
-  }
+  public abstract Object getValue();
 
   /**
    * Restituisce una rappresentazione in forma di stringa dell'elemento di dati,
@@ -49,27 +79,16 @@ public abstract class Item implements Serializable {
    * @return Una rappresentazione in forma di stringa dell'elemento di dati.
    */
   public String toString() {
-    return value.toString();
+    return getValue().toString();
   }
 
   /**
    * Calcola la distanza tra l'elemento di dati corrente e un altro elemento specificato.
    * L'implementazione di questo metodo varia per elementi discreti e continui.
    *
-   * @param a L'oggetto da confrontare con l'elemento corrente.
+   * @param a L'elemento, definito sullo stesso attributo, da confrontare con l'elemento corrente.
    * @return La distanza tra l'elemento di dati corrente e l'elemento specificato.
    */
-  abstract double distance(Object a); // L’implementazione sarà diversa per item discreto e item continuo
+  abstract double distance(Item a); // L’implementazione sarà diversa per item discreto e item continuo
 
-
-  /**
-   * Aggiorna il valore dell'elemento di dati basato su un insieme di transazioni raggruppate.
-   * L'aggiornamento avviene calcolando il prototipo per l'attributo dell'elemento di dati.
-   *
-   * @param data          L'insieme di dati contenente le transazioni.
-   * @param clusteredData L'insieme di indici delle transazioni raggruppate.
-   */
-  public void update(Data data, Set<Integer> clusteredData) {
-    value = data.computePrototype(clusteredData, attribute);
-  }
 }
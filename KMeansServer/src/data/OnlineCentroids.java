@@ -0,0 +1,125 @@
+package data;
+
+/**
+ * La classe OnlineCentroids aggiorna i centroidi in modo incrementale, una transazione alla volta, come richiesto
+ * dal K-Means a mini-batch. Ogni centroide ha un proprio tasso di apprendimento pari all'inverso del numero di
+ * transazioni che gli sono state assegnate: per gli attributi continui il centroide è la media mobile dei valori,
+ * per gli attributi discreti è il valore con peso massimo in un istogramma i cui pesi decadono con lo stesso tasso.
+ */
+public class OnlineCentroids {
+
+  /**
+   * Oggetto Data da cui leggere le transazioni.
+   */
+  private final Data data;
+
+  /**
+   * Numero di transazioni assegnate a ciascun centroide, che determina il tasso di apprendimento.
+   */
+  private final int[] counts;
+
+  /**
+   * Medie mobili degli attributi continui: means[j][c] è il valore dell'attributo j nel centroide c.
+   * La posizione di un attributo discreto contiene null.
+   */
+  private final double[][] means;
+
+  /**
+   * Pesi decrescenti dei valori discreti: weights[j][c * domains[j] + v] è il peso del codice v per l'attributo j
+   * nel centroide c. La posizione di un attributo continuo contiene null.
+   */
+  private final double[][] weights;
+
+  /**
+   * Cardinalità del dominio di ciascun attributo discreto (0 per gli attributi continui).
+   */
+  private final int[] domains;
+
+  /**
+   * Costruttore della classe OnlineCentroids.
+   *
+   * @param data L'oggetto Data contenente le transazioni.
+   * @param k    Il numero di centroidi.
+   */
+  public OnlineCentroids(Data data, int k) {
+    this.data = data;
+    int m = data.getNumberOfAttributes();
+    counts = new int[k];
+    means = new double[m][];
+    weights = new double[m][];
+    domains = new int[m];
+    for (int j = 0; j < m; j++) {
+      Attribute attribute = data.getAttribute(j);
+      if (attribute instanceof ContinuousAttribute)
+        means[j] = new double[k];
+      else {
+        domains[j] = ((DiscreteAttribute) attribute).getNumberOfDistinctValues();
+        weights[j] = new double[k * domains[j]];
+      }
+    }
+  }
+
+  /**
+   * Inizializza lo stato di un centroide con i valori di una tupla.
+   *
+   * @param cluster  Posizione del centroide.
+   * @param centroid La tupla con i valori iniziali del centroide.
+   */
+  public void reset(int cluster, Tuple centroid) {
+    counts[cluster] = 0;
+    for (int j = 0; j < means.length; j++) {
+      if (means[j] != null)
+        means[j][cluster] = ((ContinuousItem) centroid.get(j)).getDoubleValue();
+      else {
+        int offset = cluster * domains[j];
+        for (int v = 0; v < domains[j]; v++)
+          weights[j][offset + v] = 0;
+        weights[j][offset + ((DiscreteItem) centroid.get(j)).getCode()] = 1;
+      }
+    }
+  }
+
+  /**
+   * Sposta un centroide verso una transazione con tasso di apprendimento 1/(numero di transazioni assegnate).
+   *
+   * @param id      Identificatore della transazione.
+   * @param cluster Posizione del centroide a cui la transazione è assegnata.
+   */
+  public void update(int id, int cluster) {
+    double eta = 1.0 / ++counts[cluster];
+    for (int j = 0; j < means.length; j++) {
+      if (means[j] != null)
+        means[j][cluster] += eta * (data.getContinuousValue(id, j) - means[j][cluster]);
+      else {
+        double[] w = weights[j];
+        int offset = cluster * domains[j];
+        for (int v = 0; v < domains[j]; v++)
+          w[offset + v] *= 1 - eta;
+        w[offset + data.getDiscreteCode(id, j)] += eta;
+      }
+    }
+  }
+
+  /**
+   * Scrive lo stato corrente di un centroide nella tupla corrispondente: media mobile per gli attributi continui,
+   * codice di peso massimo (a parità di peso il codice minore) per gli attributi discreti.
+   *
+   * @param cluster  Posizione del centroide.
+   * @param centroid La tupla da aggiornare.
+   */
+  public void updateCentroid(int cluster, Tuple centroid) {
+    for (int j = 0; j < means.length; j++) {
+      if (means[j] != null)
+        ((ContinuousItem) centroid.get(j)).setValue(means[j][cluster]);
+      else {
+        double[] w = weights[j];
+        int offset = cluster * domains[j];
+        int prototype = 0;
+        for (int v = 1; v < domains[j]; v++)
+          if (w[offset + v] > w[offset + prototype])
+            prototype = v;
+        ((DiscreteItem) centroid.get(j)).setCode(prototype);
+      }
+    }
+  }
+}
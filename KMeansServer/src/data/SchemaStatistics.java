@@ -0,0 +1,34 @@
+package data;
+
+/**
+ * L'enum SchemaStatistics rappresenta le strategie disponibili per calcolare, durante la costruzione di Data,
+ * gli estremi degli attributi continui e i domini degli attributi discreti.
+ */
+public enum SchemaStatistics {
+
+  /**
+   * QUERIES esegue una query MIN e una MAX per ogni colonna numerica e una query DISTINCT per ogni colonna
+   * di stringhe, prima della lettura delle transazioni.
+   */
+  QUERIES,
+  /**
+   * AGGREGATE calcola gli estremi di tutte le colonne numeriche con un'unica query aggregata; i domini
+   * delle colonne di stringhe sono letti con una query DISTINCT per colonna.
+   */
+  AGGREGATE,
+  /**
+   * SCAN calcola estremi e domini durante l'unica lettura delle transazioni, senza query aggiuntive.
+   */
+  SCAN;
+
+  /**
+   * Restituisce la strategia corrispondente al nome specificato, senza distinzione tra maiuscole e minuscole.
+   *
+   * @param name Il nome della strategia.
+   * @return La strategia corrispondente.
+   * @throws IllegalArgumentException Eccezione lanciata se il nome non corrisponde ad alcuna strategia.
+   */
+  public static SchemaStatistics parse(String name) {
+    return valueOf(name.toUpperCase());
+  }
+}
@@ -1,13 +1,17 @@
 package data;
 
 import java.io.Serializable;
-import java.util.Set;
 
 /**
  * La classe Tuple rappresenta una tupla di elementi di dati associati a un insieme di attributi,
  * fornendo metodi per gestire e calcolare distanze tra tuple e la distanza media all'interno di un gruppo di transazioni.
  */
 public class Tuple implements Serializable {
+  /**
+   * Numero di versione della forma serializzata, invariata rispetto alla versione originale della classe.
+   */
+  private static final long serialVersionUID = -7158263375172897699L;
+
   /**
    * Array di elementi di dati rappresentanti la tupla.
    */
@@ -60,25 +64,24 @@ public class Tuple implements Serializable {
   public double getDistance(Tuple t) {
     double distance = 0;
     for (int i = 0; i < tuple.length; i++) {
-      distance += tuple[i].distance(t.get(i).getValue());
+      distance += tuple[i].distance(t.get(i));
     }
     return distance;
   }
 
   /**
-   * Calcola la distanza media tra la tupla corrente e un gruppo di transazioni specificato.
+   * Scrive la tupla in forma primitiva piatta: per ogni attributo continuo il valore scalato,
+   * per ogni attributo discreto il codice del valore. È la forma accettata da {@link Data#distance(int, double[])}.
    *
-   * @param data          L'insieme di dati contenente le transazioni.
-   * @param clusteredData L'insieme di indici delle transazioni raggruppate.
-   * @return La distanza media tra la tupla corrente e il gruppo di transazioni.
+   * @param target L'array, di lunghezza pari a quella della tupla, in cui scrivere la tupla.
    */
-  public double avgDistance(Data data, Set<Integer> clusteredData) {
-    double p, sumD = 0.0;
-    for (int i : clusteredData) {
-      double d = getDistance(data.getItemSet(i));
-      sumD += d;
+  public void encode(double[] target) {
+    for (int i = 0; i < tuple.length; i++) {
+      if (tuple[i] instanceof ContinuousItem) {
+        ContinuousItem item = (ContinuousItem) tuple[i];
+        target[i] = ((ContinuousAttribute) item.getAttribute()).getScaledValue(item.getDoubleValue());
+      } else
+        target[i] = ((DiscreteItem) tuple[i]).getCode();
     }
-    p = sumD / clusteredData.size();
-    return p;
   }
 }
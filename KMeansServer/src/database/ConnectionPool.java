@@ -0,0 +1,334 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La classe ConnectionPool gestisce un insieme limitato di connessioni JDBC riutilizzabili verso lo stesso
+ * server, database e utente. Le connessioni restituite restano aperte e vengono prestate alle richieste
+ * successive con le stesse credenziali, dopo averne verificato la validità; quelle inattive da troppo tempo
+ * vengono chiuse da un thread di servizio. La classe è sicura rispetto all'uso da più thread.
+ */
+public class ConnectionPool {
+
+  /**
+   * Pool esistenti, indicizzati per server, database e utente.
+   */
+  private static final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+  /**
+   * Numero massimo di connessioni aperte per pool.
+   */
+  private static int maxSize = 8;
+
+  /**
+   * Tempo in millisecondi dopo il quale una connessione inattiva viene chiusa.
+   */
+  private static long idleTimeout = 60_000;
+
+  /**
+   * Tempo massimo in millisecondi di attesa di una connessione libera.
+   */
+  private static final long BORROW_TIMEOUT = 10_000;
+
+  /**
+   * Tempo massimo in secondi della verifica di validità di una connessione.
+   */
+  private static final int VALIDATION_TIMEOUT = 2;
+
+  /**
+   * Thread di servizio che chiude periodicamente le connessioni inattive.
+   */
+  private static final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "connection-pool-evictor");
+    t.setDaemon(true);
+    return t;
+  });
+
+  static {
+    evictor.scheduleWithFixedDelay(() -> {
+      for (ConnectionPool pool : pools.values()) pool.evictIdle();
+    }, 10, 10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * La classe Entry rappresenta una connessione inattiva, con la stringa di connessione che l'ha creata
+   * e l'istante in cui è stata restituita.
+   */
+  private static class Entry {
+
+    /**
+     * La connessione.
+     */
+    final Connection connection;
+
+    /**
+     * La stringa di connessione, comprensiva delle credenziali, con cui la connessione è stata creata.
+     */
+    final String url;
+
+    /**
+     * Istante in millisecondi in cui la connessione è stata restituita.
+     */
+    final long lastUsed;
+
+    /**
+     * Costruttore della classe Entry.
+     *
+     * @param connection La connessione.
+     * @param url        La stringa di connessione.
+     */
+    Entry(Connection connection, String url) {
+      this.connection = connection;
+      this.url = url;
+      this.lastUsed = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Nome del pool (server/database/utente).
+   */
+  private final String name;
+
+  /**
+   * Connessioni inattive, dalla meno alla più recentemente restituita.
+   */
+  private final ArrayDeque<Entry> idle = new ArrayDeque<>();
+
+  /**
+   * Numero di connessioni aperte, prestate o inattive.
+   */
+  private int open = 0;
+
+  /**
+   * Contatori delle metriche del pool: connessioni aperte e chiuse, prestiti, verifiche di validità fallite,
+   * prestiti che hanno dovuto attendere e prestiti scaduti.
+   */
+  private long created = 0, closed = 0, borrowed = 0, validationFailures = 0, waits = 0, timeouts = 0;
+
+  /**
+   * Costruttore della classe ConnectionPool.
+   *
+   * @param name Nome del pool.
+   */
+  private ConnectionPool(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Restituisce il pool per il server, il database e l'utente specificati, creandolo se non esiste.
+   *
+   * @param server   Indirizzo del server del database.
+   * @param database Nome del database.
+   * @param user     Nome utente.
+   * @return Il pool corrispondente.
+   */
+  static ConnectionPool of(String server, String database, String user) {
+    return pools.computeIfAbsent(server + "/" + database + "/" + user, ConnectionPool::new);
+  }
+
+  /**
+   * Imposta il numero massimo di connessioni aperte di ciascun pool.
+   *
+   * @param size Numero massimo di connessioni, almeno 1.
+   */
+  public static void setMaxSize(int size) {
+    if (size < 1) throw new IllegalArgumentException("La dimensione del pool deve essere almeno 1");
+    maxSize = size;
+  }
+
+  /**
+   * Imposta il tempo dopo il quale una connessione inattiva viene chiusa.
+   *
+   * @param millis Tempo in millisecondi.
+   */
+  public static void setIdleTimeout(long millis) {
+    if (millis < 0) throw new IllegalArgumentException("Il tempo di inattività non può essere negativo");
+    idleTimeout = millis;
+  }
+
+  /**
+   * Presta una connessione creata con la stringa di connessione specificata: viene riusata una connessione
+   * inattiva con le stesse credenziali dopo averne verificato la validità, altrimenti ne viene aperta una nuova
+   * se il pool non ha raggiunto la dimensione massima. A pool pieno, le connessioni inattive con credenziali
+   * diverse vengono chiuse per liberare posto; in mancanza di queste si attende che una connessione venga
+   * restituita.
+   *
+   * @param url La stringa di connessione, comprensiva delle credenziali.
+   * @return Una connessione valida.
+   * @throws DatabaseConnectionException Eccezione lanciata se la connessione non può essere aperta o se
+   *                                     nessuna connessione si libera entro il tempo massimo di attesa.
+   */
+  Connection borrow(String url) throws DatabaseConnectionException {
+    long deadline = System.currentTimeMillis() + BORROW_TIMEOUT;
+    boolean waited = false;
+    while (true) {
+      Entry reused = null;
+      synchronized (this) {
+        while (reused == null) {
+          reused = takeIdle(url);
+          if (reused != null) break;
+          if (open < maxSize) {
+            open++;
+            break;
+          }
+          Entry stale = idle.pollFirst();
+          if (stale != null) {
+            discard(stale.connection);
+            continue;
+          }
+          long wait = deadline - System.currentTimeMillis();
+          if (wait <= 0) {
+            timeouts++;
+            throw new DatabaseConnectionException("[!] Nessuna connessione disponibile per " + name
+                + " entro " + BORROW_TIMEOUT + " ms");
+          }
+          if (!waited) waits++;
+          waited = true;
+          try {
+            wait(wait);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseConnectionException("[!] Attesa di una connessione interrotta");
+          }
+        }
+        borrowed++;
+      }
+      if (reused == null) return create(url);
+      if (isValid(reused.connection)) return reused.connection;
+      synchronized (this) {
+        validationFailures++;
+        borrowed--;
+        discard(reused.connection);
+      }
+    }
+  }
+
+  /**
+   * Restituisce al pool una connessione prestata, che diventa disponibile per le richieste successive
+   * con le stesse credenziali.
+   *
+   * @param connection La connessione prestata.
+   * @param url        La stringa di connessione con cui è stata creata.
+   */
+  synchronized void release(Connection connection, String url) {
+    idle.addLast(new Entry(connection, url));
+    notifyAll();
+  }
+
+  /**
+   * Estrae la connessione inattiva più recente creata con la stringa di connessione specificata.
+   *
+   * @param url La stringa di connessione.
+   * @return La connessione inattiva o null se non ce ne sono.
+   */
+  private Entry takeIdle(String url) {
+    Iterator<Entry> it = idle.descendingIterator();
+    while (it.hasNext()) {
+      Entry entry = it.next();
+      if (entry.url.equals(url)) {
+        it.remove();
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Apre una nuova connessione, il cui posto nel pool è già stato riservato.
+   *
+   * @param url La stringa di connessione.
+   * @return La nuova connessione.
+   * @throws DatabaseConnectionException Eccezione lanciata in caso di problemi durante la connessione.
+   */
+  private Connection create(String url) throws DatabaseConnectionException {
+    try {
+      Connection connection = DriverManager.getConnection(url);
+      System.out.println("Nuova connessione per " + name);
+      synchronized (this) {
+        created++;
+      }
+      return connection;
+    } catch (SQLException e) {
+      synchronized (this) {
+        open--;
+        borrowed--;
+        notifyAll();
+      }
+      throw new DatabaseConnectionException(
+          "[!] SQLException: " + e.getMessage() + "\n"
+              + "[!] SQLState: " + e.getSQLState() + "\n"
+              + "[!] VendorError: " + e.getErrorCode()
+      );
+    }
+  }
+
+  /**
+   * Verifica che una connessione inattiva sia ancora utilizzabile.
+   *
+   * @param connection La connessione da verificare.
+   * @return true se la connessione è valida.
+   */
+  private static boolean isValid(Connection connection) {
+    try {
+      return connection.isValid(VALIDATION_TIMEOUT);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Chiude una connessione e libera il suo posto nel pool; va invocato tenendo il lock del pool.
+   *
+   * @param connection La connessione da chiudere.
+   */
+  private void discard(Connection connection) {
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      // la connessione è comunque rimossa dal pool
+    }
+    open--;
+    closed++;
+    notifyAll();
+  }
+
+  /**
+   * Chiude le connessioni inattive da più di idleTimeout millisecondi.
+   */
+  private synchronized void evictIdle() {
+    long limit = System.currentTimeMillis() - idleTimeout;
+    while (!idle.isEmpty() && idle.peekFirst().lastUsed < limit)
+      discard(idle.pollFirst().connection);
+  }
+
+  /**
+   * Restituisce una descrizione delle metriche del pool.
+   *
+   * @return Le metriche del pool in forma di stringa.
+   */
+  public synchronized String toString() {
+    return name + ": aperte=" + open + " inattive=" + idle.size() + " create=" + created + " chiuse=" + closed
+        + " prestiti=" + borrowed + " validazioni fallite=" + validationFailures + " attese=" + waits
+        + " tempi scaduti=" + timeouts;
+  }
+
+  /**
+   * Restituisce una descrizione delle metriche di tutti i pool.
+   *
+   * @return Le metriche dei pool in forma di stringa, una riga per pool.
+   */
+  public static String getMetrics() {
+    StringBuilder str = new StringBuilder();
+    for (ConnectionPool pool : pools.values()) str.append(pool).append("\n");
+    return str.toString();
+  }
+}
@@ -1,12 +1,12 @@
 package database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * La classe DbAccess fornisce metodi per la gestione della connessione e accesso a un database.
- * Utilizza il driver JDBC per la connessione a un database MySQL.
+ * Utilizza il driver JDBC per la connessione a un database MySQL. Le connessioni sono prese in prestito
+ * da un ConnectionPool per server, database e utente e vi vengono restituite alla chiusura.
  */
 public class DbAccess {
 
@@ -48,10 +48,15 @@ public class DbAccess {
   private String password = "map";
 
   /**
-   * Connessione al database.
+   * Connessione al database, presa in prestito dal pool.
    */
   private Connection conn;
 
+  /**
+   * Stringa di connessione con cui è stata ottenuta la connessione corrente.
+   */
+  private String connectionString;
+
   /**
    * Costruttore vuoto della classe DbAccess.
    */
@@ -89,18 +94,11 @@ public class DbAccess {
     } catch (IllegalAccessException e) {
       throw new DatabaseConnectionException("[!] Impossibile accedere al driver: " + e.getMessage());
     }
-    String connectionString = DBMS + "://" + server + ":" + PORT + "/" + database
-        + "?user=" + user_id + "&password=" + password + "&serverTimezone=UTC";
-    System.out.println("Connection's String: " + connectionString);
-    try {
-      conn = DriverManager.getConnection(connectionString);
-    } catch (SQLException e) {
-      throw new DatabaseConnectionException(
-          "[!] SQLException: " + e.getMessage() + "\n"
-              + "[!] SQLState: " + e.getSQLState() + "\n"
-              + "[!] VendorError: " + e.getErrorCode()
-      );
-    }
+    connectionString = DBMS + "://" + server + ":" + PORT + "/" + database
+        + "?user=" + user_id + "&password=" + password + "&serverTimezone=UTC"
+        // con una dimensione di fetch positiva il driver MySQL legge a blocchi solo tramite cursore lato server
+        + (TableData.getFetchSize() > 0 ? "&useCursorFetch=true" : "");
+    conn = ConnectionPool.of(server, database, user_id).borrow(connectionString);
   }
 
   /**
@@ -113,16 +111,15 @@ public class DbAccess {
   }
 
   /**
-   * Chiude la connessione al database.
+   * Chiude la connessione al database restituendola al pool, che la mantiene aperta per le richieste successive.
+   * Invocare il metodo più volte non ha effetto.
    *
    * @throws DatabaseConnectionException Eccezione lanciata in caso di problemi durante la chiusura della connessione.
    */
   public void closeConnection() throws DatabaseConnectionException {
-    try {
-      conn.close();
-    } catch (SQLException e) {
-      throw new DatabaseConnectionException("[!] Errore durante la chiusura della connessione: " + e.getMessage());
-    }
+    if (conn == null) return;
+    ConnectionPool.of(server, database, user_id).release(conn, connectionString);
+    conn = null;
   }
 
   /*public void exampleQuery() {
@@ -0,0 +1,20 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * L'interfaccia RowHandler rappresenta il consumatore delle righe di una lettura in streaming di una tabella:
+ * ogni riga viene consegnata appena letta dal driver, senza essere trattenuta in memoria.
+ */
+public interface RowHandler {
+
+  /**
+   * Elabora la riga corrente del ResultSet. Le colonne sono lette per posizione (a partire da 1),
+   * nell'ordine dello schema della tabella; il ResultSet non deve essere fatto avanzare.
+   *
+   * @param row Il ResultSet posizionato sulla riga da elaborare.
+   * @throws SQLException Eccezione lanciata in caso di errori SQL durante la lettura della riga.
+   */
+  void handle(ResultSet row) throws SQLException;
+}
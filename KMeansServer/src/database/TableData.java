@@ -15,6 +15,17 @@ import java.util.Set;
  */
 public class TableData {
 
+  /**
+   * Dimensione di fetch che attiva la modalità streaming del driver MySQL: le righe vengono lette una alla volta
+   * dal server anziché caricate tutte in memoria prima della prima riga.
+   */
+  public static final int STREAMING = Integer.MIN_VALUE;
+
+  /**
+   * Dimensione di fetch delle letture in streaming, 0 per usare il comportamento predefinito del driver.
+   */
+  private static int fetchSize = STREAMING;
+
   /**
    * Oggetto DbAccess utilizzato per la connessione al database.
    */
@@ -29,6 +40,106 @@ public class TableData {
     this.db = db;
   }
 
+  /**
+   * Imposta la dimensione di fetch delle letture in streaming per l'intero server.
+   *
+   * @param size Dimensione di fetch: STREAMING per la modalità streaming di MySQL, 0 per il comportamento
+   *             predefinito del driver o un valore positivo per il numero di righe per richiesta.
+   */
+  public static void setFetchSize(int size) {
+    if (size < 0 && size != STREAMING) throw new IllegalArgumentException("Dimensione di fetch non valida: " + size);
+    fetchSize = size;
+  }
+
+  /**
+   * Restituisce la dimensione di fetch delle letture in streaming.
+   *
+   * @return La dimensione di fetch.
+   */
+  static int getFetchSize() {
+    return fetchSize;
+  }
+
+  /**
+   * Crea uno statement di sola lettura, percorribile solo in avanti e con la dimensione di fetch configurata.
+   *
+   * @return Lo statement per le letture in streaming.
+   * @throws SQLException Eccezione lanciata in caso di errori SQL durante la creazione dello statement.
+   */
+  private Statement createStreamingStatement() throws SQLException {
+    Statement s = db.getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    s.setFetchSize(fetchSize);
+    return s;
+  }
+
+  /**
+   * Legge in streaming le transazioni distinte della tabella specificata, consegnando ciascuna riga al
+   * RowHandler appena letta: le righe non vengono trattenute né copiate in oggetti intermedi.
+   * Le colonne della riga seguono l'ordine dello schema della tabella.
+   * Durante la lettura in modalità streaming la connessione non può eseguire altre query.
+   *
+   * @param table   Nome della tabella da cui leggere le transazioni distinte.
+   * @param handler Il consumatore delle righe.
+   * @return Il numero di righe lette.
+   * @throws SQLException      Eccezione lanciata in caso di errori SQL durante l'esecuzione della query.
+   * @throws EmptySetException Eccezione lanciata se la tabella è vuota.
+   */
+  public int scanDistinctTransazioni(String table, RowHandler handler) throws SQLException, EmptySetException {
+    int rows = 0;
+    Statement s = createStreamingStatement();
+    try {
+      ResultSet rs = s.executeQuery("SELECT DISTINCT * " + "FROM " + table + ";");
+      while (rs.next()) {
+        handler.handle(rs);
+        rows++;
+      }
+      rs.close();
+    } finally {
+      s.close();
+    }
+    if (rows == 0) throw new EmptySetException("La tabella " + table + " è vuota");
+    return rows;
+  }
+
+  /**
+   * Conta le righe della tabella specificata.
+   *
+   * @param table Nome della tabella.
+   * @return Il numero di righe.
+   * @throws SQLException Eccezione lanciata in caso di errori SQL durante l'esecuzione della query.
+   */
+  public long countRows(String table) throws SQLException {
+    Statement s = db.getConnection().createStatement();
+    try {
+      ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM " + table + ";");
+      return rs.next() ? rs.getLong(1) : 0;
+    } finally {
+      s.close();
+    }
+  }
+
+  /**
+   * Calcola la checksum del contenuto della tabella specificata (CHECKSUM TABLE di MySQL).
+   *
+   * @param table Nome della tabella.
+   * @return La checksum della tabella.
+   * @throws SQLException     Eccezione lanciata in caso di errori SQL durante l'esecuzione della query.
+   * @throws NoValueException Eccezione lanciata se la tabella non esiste.
+   */
+  public long getChecksum(String table) throws SQLException, NoValueException {
+    Statement s = db.getConnection().createStatement();
+    try {
+      ResultSet rs = s.executeQuery("CHECKSUM TABLE " + table + ";");
+      if (rs.next()) {
+        long checksum = rs.getLong(2);
+        if (!rs.wasNull()) return checksum;
+      }
+      throw new NoValueException("La tabella " + table + " non esiste");
+    } finally {
+      s.close();
+    }
+  }
+
   /**
    * Ottiene una lista di esempi distinti dalla tabella specificata.
    *
@@ -39,20 +150,15 @@ public class TableData {
    */
   public List<Example> getDistinctTransazioni(String table) throws SQLException, EmptySetException {
     TableSchema ts = new TableSchema(db, table);
-    Statement s = db.getConnection().createStatement();
-    ResultSet rs = s.executeQuery("SELECT DISTINCT * " + "FROM " + table + ";");
     List<Example> list = new ArrayList<>();
-    while (rs.next()) {
+    scanDistinctTransazioni(table, rs -> {
       Example ex = new Example();
       for (int i = 0; i < ts.getNumberOfAttributes(); i++) {
-        if (ts.getColumn(i).isNumber()) ex.add(rs.getDouble(ts.getColumn(i).getColumnName()));
-        else ex.add(rs.getString(ts.getColumn(i).getColumnName()));
+        if (ts.getColumn(i).isNumber()) ex.add(rs.getDouble(i + 1));
+        else ex.add(rs.getString(i + 1));
       }
       list.add(ex);
-    }
-    s.close();
-    rs.close();
-    if (list.isEmpty()) throw new EmptySetException("La tabella " + table + " è vuota");
+    });
     return list;
   }
 
@@ -78,6 +184,39 @@ public class TableData {
     return set;
   }
 
+  /**
+   * Ottiene il minimo e il massimo di più colonne numeriche della tabella con un'unica query aggregata.
+   *
+   * @param table   Nome della tabella dalla quale ottenere i valori aggregati.
+   * @param columns Colonne numeriche di cui calcolare gli estremi.
+   * @return Per ciascuna colonna, nell'ordine ricevuto, la coppia {minimo, massimo}.
+   * @throws SQLException     Eccezione lanciata in caso di errori SQL durante l'esecuzione della query.
+   * @throws NoValueException Eccezione lanciata se una colonna non ha alcun valore.
+   */
+  public double[][] getMinMaxColumnValues(String table, List<Column> columns) throws SQLException, NoValueException {
+    double[][] ret = new double[columns.size()][2];
+    if (columns.isEmpty()) return ret;
+    StringBuilder query = new StringBuilder("SELECT ");
+    for (int i = 0; i < columns.size(); i++) {
+      if (i > 0) query.append(", ");
+      query.append(QUERY_TYPE.MIN).append("(").append(columns.get(i).getColumnName()).append("), ")
+          .append(QUERY_TYPE.MAX).append("(").append(columns.get(i).getColumnName()).append(")");
+    }
+    Statement s = db.getConnection().createStatement();
+    try {
+      ResultSet rs = s.executeQuery(query.append(" FROM ").append(table).append(";").toString());
+      if (!rs.next()) throw new NoValueException("Nessun valore per la tabella " + table);
+      for (int i = 0; i < columns.size(); i++) {
+        ret[i][0] = rs.getDouble(2 * i + 1);
+        ret[i][1] = rs.getDouble(2 * i + 2);
+        if (rs.wasNull()) throw new NoValueException("Nessun valore per la colonna " + columns.get(i).getColumnName());
+      }
+    } finally {
+      s.close();
+    }
+    return ret;
+  }
+
   /**
    * Ottiene il valore aggregato (MIN o MAX) della colonna specificata nella tabella.
    *
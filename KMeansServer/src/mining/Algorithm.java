@@ -0,0 +1,41 @@
+package mining;
+
+import data.Data;
+
+/**
+ * L'enum Algorithm rappresenta le strategie disponibili per il passo di assegnamento dell'algoritmo K-Means.
+ * Tutte producono lo stesso clustering a parità di seme; differiscono per tempo di calcolo e memoria.
+ */
+public enum Algorithm {
+
+  /**
+   * LLOYD calcola la distanza di ogni transazione da tutti i centroidi.
+   */
+  LLOYD,
+  /**
+   * ELKAN usa la disuguaglianza triangolare con un limite superiore e k limiti inferiori per transazione;
+   * se i limiti inferiori non possono essere memorizzati (vedi ElkanEngine.fits) viene usato HAMERLY, che
+   * produce lo stesso clustering, e le statistiche dell'esecuzione riportano la strategia effettivamente usata.
+   */
+  ELKAN,
+  /**
+   * HAMERLY usa la disuguaglianza triangolare con un solo limite superiore e un solo limite inferiore per transazione.
+   */
+  HAMERLY;
+
+  /**
+   * Crea la strategia di assegnamento corrispondente.
+   *
+   * @param set  L'insieme di cluster, con i centroidi già inizializzati.
+   * @param data L'oggetto Data contenente le transazioni.
+   * @return La strategia di assegnamento.
+   */
+  AssignmentEngine createEngine(ClusterSet set, Data data) {
+    return switch (this) {
+      case LLOYD -> new LloydEngine(set, data);
+      case ELKAN -> ElkanEngine.fits(data.getNumberOfExamples(), set.size())
+          ? new ElkanEngine(set, data) : new HamerlyEngine(set, data);
+      case HAMERLY -> new HamerlyEngine(set, data);
+    };
+  }
+}
@@ -0,0 +1,74 @@
+package mining;
+
+import data.Data;
+
+/**
+ * La classe astratta AssignmentEngine rappresenta una strategia per il passo di assegnamento dell'algoritmo K-Means:
+ * dato lo stato corrente dei centroidi, determina per ogni transazione il cluster più vicino.
+ * Tutte le strategie producono lo stesso assegnamento (a parità di distanza prevale il cluster di posizione minore)
+ * e differiscono solo per il numero di distanze effettivamente calcolate.
+ * Il metodo assign può essere invocato in parallelo su intervalli disgiunti di transazioni.
+ */
+abstract class AssignmentEngine {
+
+  /**
+   * Insieme di cluster i cui centroidi sono usati per l'assegnamento.
+   */
+  final ClusterSet set;
+
+  /**
+   * Oggetto Data contenente le transazioni.
+   */
+  final Data data;
+
+  /**
+   * Numero di distanze calcolate da prepare, al di fuori del confronto tra transazioni e centroidi.
+   */
+  long overheadComputations = 0;
+
+  /**
+   * Costruttore della classe AssignmentEngine.
+   *
+   * @param set  L'insieme di cluster.
+   * @param data L'oggetto Data contenente le transazioni.
+   */
+  AssignmentEngine(ClusterSet set, Data data) {
+    this.set = set;
+    this.data = data;
+  }
+
+  /**
+   * Prepara un'iterazione dopo l'aggiornamento dei centroidi; viene invocato una volta per iterazione,
+   * prima di qualsiasi chiamata ad assign.
+   */
+  void prepare() {
+  }
+
+  /**
+   * Assegna ciascuna transazione dell'intervallo al cluster più vicino, registrando nel delta le transazioni
+   * che cambiano cluster, il numero di distanze calcolate e l'errore quadratico rispetto ai centroidi correnti.
+   * Le strategie che evitano il calcolo di una distanza ne registrano il limite superiore, per cui il loro
+   * errore può sovrastimare quello esatto.
+   *
+   * @param from  Indice della prima transazione (incluso).
+   * @param to    Indice dell'ultima transazione (escluso).
+   * @param delta Gli spostamenti dell'intervallo.
+   */
+  abstract void assign(int from, int to, MembershipDelta delta);
+
+  /**
+   * Restituisce la strategia di assegnamento implementata.
+   *
+   * @return La strategia di assegnamento.
+   */
+  abstract Algorithm getAlgorithm();
+
+  /**
+   * Restituisce il numero di distanze calcolate da prepare dall'inizio dell'esecuzione.
+   *
+   * @return Il numero di distanze tra centroidi calcolate.
+   */
+  long getOverheadComputations() {
+    return overheadComputations;
+  }
+}
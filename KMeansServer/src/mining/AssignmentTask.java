@@ -0,0 +1,56 @@
+package mining;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * La classe AssignmentTask esegue il passo di assegnamento dell'algoritmo K-Means su un intervallo
+ * di transazioni, delegando la ricerca del centroide più vicino a un AssignmentEngine e registrando in un
+ * MembershipDelta locale le transazioni che cambiano cluster. Durante l'esecuzione etichette e centroidi sono
+ * solo letti, per cui più blocchi possono essere eseguiti in parallelo su un ForkJoinPool.
+ */
+class AssignmentTask extends RecursiveTask<MembershipDelta> {
+
+  /**
+   * Numero di versione della forma serializzata, ereditata da ForkJoinTask; i task non vengono mai salvati.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Strategia di assegnamento.
+   */
+  private final AssignmentEngine engine;
+
+  /**
+   * Indice della prima transazione del blocco (incluso).
+   */
+  private final int from;
+
+  /**
+   * Indice dell'ultima transazione del blocco (escluso).
+   */
+  private final int to;
+
+  /**
+   * Costruttore della classe AssignmentTask.
+   *
+   * @param engine La strategia di assegnamento.
+   * @param from   Indice della prima transazione del blocco (incluso).
+   * @param to     Indice dell'ultima transazione del blocco (escluso).
+   */
+  AssignmentTask(AssignmentEngine engine, int from, int to) {
+    this.engine = engine;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Assegna ciascuna transazione del blocco al cluster più vicino.
+   *
+   * @return Gli spostamenti di cluster delle transazioni del blocco.
+   */
+  protected MembershipDelta compute() {
+    MembershipDelta delta = new MembershipDelta();
+    engine.assign(from, to, delta);
+    return delta;
+  }
+}
@@ -4,24 +4,40 @@ import data.Data;
 import data.Tuple;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * La classe Cluster rappresenta un cluster di dati all'interno di un insieme di dati.
- * Ogni cluster è definito da un centroide (Tuple) e da un insieme di dati clusterizzati.
+ * Ogni cluster è definito da un centroide (Tuple) e dalle transazioni clusterizzate, la cui appartenenza
+ * è registrata nell'array di etichette del ClusterSet che contiene il cluster.
  */
 public class Cluster implements Serializable {
 
+  /**
+   * Numero di versione della forma serializzata, fissato a quello della versione originale della classe.
+   * Nella forma originale le transazioni erano salvate in un insieme clusteredData, che viene ignorato
+   * in lettura; owner e index vengono ripristinati da ClusterSet.
+   */
+  private static final long serialVersionUID = -1487019966428270197L;
+
   /**
    * Il centroide del cluster, rappresentato come una Tuple.
    */
   private final Tuple centroid;
 
   /**
-   * Insieme di identificatori delle transazioni clusterizzate in questo cluster.
+   * Insieme di cluster che contiene questo cluster e ne registra le appartenenze.
+   */
+  private final ClusterSet owner;
+
+  /**
+   * Posizione del cluster nel ClusterSet, usata come etichetta delle transazioni clusterizzate.
+   */
+  private final int index;
+
+  /**
+   * Numero di transazioni clusterizzate in questo cluster.
    */
-  private final Set<Integer> clusteredData;
+  private int size = 0;
 
     /*mining.Cluster(){
 
@@ -31,11 +47,13 @@ public class Cluster implements Serializable {
    * Costruttore della classe Cluster che inizializza un cluster con il centroide specificato.
    *
    * @param centroid Il centroide del cluster.
+   * @param owner    L'insieme di cluster che contiene il cluster.
+   * @param index    La posizione del cluster nell'insieme di cluster.
    */
-  Cluster(Tuple centroid) {
+  Cluster(Tuple centroid, ClusterSet owner, int index) {
     this.centroid = centroid;
-    clusteredData = new HashSet<>();
-
+    this.owner = owner;
+    this.index = index;
   }
   /**
    * Restituisce il centroide del cluster.
@@ -47,26 +65,65 @@ public class Cluster implements Serializable {
   }
 
   /**
-   * Calcola il nuovo centroide del cluster basandosi sui dati attualmente clusterizzati.
+   * Restituisce il cluster associato all'insieme di cluster e alla posizione indicati: il cluster stesso se vi è
+   * già associato, altrimenti una sua copia, come per i cluster letti da un modello salvato con la forma originale.
    *
-   * @param data Oggetto Data contenente le informazioni sui dati.
+   * @param owner L'insieme di cluster che contiene il cluster.
+   * @param index La posizione del cluster nell'insieme di cluster.
+   * @return Il cluster associato.
    */
-  void computeCentroid(Data data) {
-    for (int i = 0; i < centroid.getLength(); i++) {
-      centroid.get(i).update(data, clusteredData);
+  Cluster attachTo(ClusterSet owner, int index) {
+    if (this.owner == owner && this.index == index) return this;
+    Cluster c = new Cluster(centroid, owner, index);
+    c.size = size;
+    return c;
+  }
 
-    }
+  /**
+   * Restituisce la posizione del cluster nell'insieme di cluster.
+   *
+   * @return La posizione del cluster.
+   */
+  int getIndex() {
+    return index;
+  }
+
+  /**
+   * Restituisce il numero di transazioni clusterizzate in questo cluster.
+   *
+   * @return Il numero di transazioni del cluster.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Aggiorna il numero di transazioni del cluster.
+   *
+   * @param delta La variazione del numero di transazioni.
+   */
+  void addToSize(int delta) {
+    size += delta;
+  }
 
+  /**
+   * Restituisce gli identificatori delle transazioni clusterizzate, ricavati su richiesta dalle etichette.
+   *
+   * @return Un array con gli identificatori delle transazioni del cluster, in ordine crescente.
+   */
+  int[] getClusteredData() {
+    return owner.members(index, size);
   }
 
   /**
    * Aggiunge una transazione al cluster e restituisce true se la transazione cambia cluster.
+   * La transazione viene contestualmente rimossa dal cluster a cui apparteneva.
    *
    * @param id Identificatore della transazione da aggiungere.
    * @return true se la transazione cambia cluster, false altrimenti.
    */
   boolean addData(int id) {
-    return clusteredData.add(id);
+    return owner.assign(id, index);
 
   }
 
@@ -77,7 +134,7 @@ public class Cluster implements Serializable {
    * @return true se la transazione è clusterizzata in questo cluster, false altrimenti.
    */
   boolean contain(int id) {
-    return clusteredData.contains(id);
+    return owner.labelOf(id) == index;
   }
 
 
@@ -87,19 +144,51 @@ public class Cluster implements Serializable {
    * @param id Identificatore della transazione da rimuovere.
    */
   void removeTuple(int id) {
-    clusteredData.remove(id);
+    if (contain(id))
+      owner.assign(id, -1);
 
   }
 
   public String toString() {
-    String str = "Centroid=(";
+    StringBuilder str = new StringBuilder("Centroid=(");
     for (int i = 0; i < centroid.getLength(); i++)
-      str += centroid.get(i) + " ";
-    str += ")";
-    return str;
+      str.append(centroid.get(i)).append(' ');
+    str.append(')');
+    return str.toString();
 
   }
 
+  /**
+   * Aggiunge a str il centroide nella forma Centroid=(v1 v2 ...).
+   *
+   * @param str Il buffer di destinazione.
+   */
+  void appendCentroid(StringBuilder str) {
+    str.append("Centroid=(");
+    for (int i = 0; i < centroid.getLength(); i++) {
+      if (i > 0) str.append(' ');
+      str.append(centroid.get(i));
+    }
+    str.append(')');
+  }
+
+  /**
+   * Aggiunge a str una transazione del cluster nella forma [v1 v2 ...] dist=d, seguita da un ritorno a capo.
+   *
+   * @param data     Oggetto Data contenente le informazioni sui dati.
+   * @param id       Identificatore della transazione.
+   * @param distance La distanza della transazione dal centroide.
+   * @param str      Il buffer di destinazione.
+   */
+  static void appendExample(Data data, int id, double distance, StringBuilder str) {
+    str.append('[');
+    for (int j = 0; j < data.getNumberOfAttributes(); j++) {
+      if (j > 0) str.append(' ');
+      str.append(data.getAttributeValue(id, j));
+    }
+    str.append("] dist=").append(distance).append('\n');
+  }
+
   /**
    * Genera una rappresentazione in formato stringa delle informazioni di clustering per un determinato set di dati.
    *
@@ -108,21 +197,32 @@ public class Cluster implements Serializable {
    *         e la distanza media dei punti dati clusterizzati dal centroide.
    */
   public String toString(Data data) {
-    String str = "Centroid=(";
-    for (int i = 0; i < centroid.getLength(); i++) {
-      str += centroid.get(i) + (i == centroid.getLength() - 1 ? "" : " ");
-    }
-    str += ")\nExamples:\n";
-    for (int i : clusteredData) {
-      str += "[";
-      for (int j = 0; j < data.getNumberOfAttributes(); j++)
-        str += data.getAttributeValue(i, j) + (j == data.getNumberOfAttributes() - 1 ? "" : " ");
-      str += "] dist=" + getCentroid().getDistance(data.getItemSet(i)) + "\n";
+    StringBuilder str = new StringBuilder();
+    appendTo(data, str);
+    return str.toString();
+  }
 
+  /**
+   * Aggiunge a str la rappresentazione restituita da {@link #toString(Data)}, in tempo lineare nel numero
+   * di transazioni del cluster: la distanza di ogni transazione viene calcolata una sola volta e usata
+   * anche per la distanza media.
+   *
+   * @param data Oggetto Data contenente le informazioni sui dati.
+   * @param str  Il buffer di destinazione.
+   */
+  void appendTo(Data data, StringBuilder str) {
+    int[] clusteredData = getClusteredData();
+    double[] flat = new double[centroid.getLength()];
+    centroid.encode(flat);
+    appendCentroid(str);
+    str.append("\nExamples:\n");
+    double sumD = 0.0;
+    for (int i : clusteredData) {
+      double d = data.distance(i, flat);
+      sumD += d;
+      appendExample(data, i, d, str);
     }
-    str += "AvgDistance=" + getCentroid().avgDistance(data, clusteredData) + "\n";
-    return str;
-
+    str.append("AvgDistance=").append(sumD / clusteredData.length).append('\n');
   }
 
 }
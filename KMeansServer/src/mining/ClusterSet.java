@@ -1,16 +1,28 @@
 package mining;
 
+import data.ClusterAccumulator;
 import data.Data;
+import data.OnlineCentroids;
 import data.OutOfRangeSampleSize;
 import data.Tuple;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * La classe ClusterSet rappresenta un insieme di cluster, ciascuno con il proprio centroide e dati clusterizzati.
  */
 public class ClusterSet implements Serializable {
 
+  /**
+   * Numero di versione della forma serializzata, fissato a quello della versione originale della classe
+   * perché i modelli già salvati in Salvataggi continuino a essere caricati.
+   */
+  private static final long serialVersionUID = -4084515223094217839L;
+
   /**
    * Array di cluster all'interno del ClusterSet.
    */
@@ -21,6 +33,25 @@ public class ClusterSet implements Serializable {
    */
   private int i = 0; //posizione valida per la memorizzazione di un nuovo cluster in C
 
+  /**
+   * Etichette di appartenenza: labels[id] è la posizione in C del cluster che contiene la transazione id,
+   * oppure -1 se la transazione non è ancora clusterizzata.
+   * Non vengono salvate con il modello, che conserva solo i centroidi.
+   */
+  private transient int[] labels = new int[0];
+
+  /**
+   * Centroidi in forma primitiva piatta (vedi {@link Tuple#encode(double[])}), allineati ai centroidi dei cluster
+   * e usati dal passo di assegnamento per calcolare le distanze senza allocare tuple.
+   */
+  private transient double[][] centroids;
+
+  /**
+   * Statistiche per cluster (somme e istogrammi) aggiornate a ogni cambio di cluster di una transazione,
+   * da cui vengono ricalcolati i centroidi senza scandire nuovamente le transazioni.
+   */
+  private transient ClusterAccumulator accumulator;
+
   /**
    * Costruttore della classe ClusterSet che inizializza l'array di cluster con dimensione k.
    *
@@ -35,6 +66,21 @@ public class ClusterSet implements Serializable {
     }
   }
 
+  /**
+   * Legge l'insieme di cluster e associa ogni cluster alla propria posizione, che i modelli salvati con la
+   * forma originale non registravano. Le etichette non sono salvate: il modello letto non ha transazioni.
+   *
+   * @param in Lo stream da cui leggere.
+   * @throws IOException            Eccezione lanciata in caso di errori di I/O.
+   * @throws ClassNotFoundException Eccezione lanciata se la classe di un campo non è disponibile.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    labels = new int[0];
+    for (int c = 0; c < C.length; c++)
+      if (C[c] != null) C[c] = C[c].attachTo(this, c);
+  }
+
   /**
    * Aggiunge un nuovo cluster all'insieme di cluster.
    *
@@ -58,62 +104,166 @@ public class ClusterSet implements Serializable {
 
 
   /**
-   * Inizializza i centroidi dei cluster selezionando casualmente alcune tuple dai dati.
+   * Inizializza i centroidi dei cluster selezionando alcune tuple dai dati secondo la strategia indicata.
    *
-   * @param data Oggetto Data contenente le informazioni sui dati.
+   * @param data    Oggetto Data contenente le informazioni sui dati.
+   * @param seeding La strategia di scelta dei centroidi iniziali.
+   * @param seed    Il seme della scelta casuale.
+   * @param pool    Il pool su cui eseguire la scelta, null per l'esecuzione sequenziale.
    * @throws OutOfRangeSampleSize Eccezione lanciata se il numero di cluster è maggiore del numero di tuple nei dati.
    */
-  void initializeCentroids(Data data) throws OutOfRangeSampleSize {
-    int[] centroidIndexes = data.sampling(C.length);
+  void initializeCentroids(Data data, Seeding seeding, long seed, ForkJoinPool pool) throws OutOfRangeSampleSize {
+    int[] centroidIndexes = seeding.select(data, C.length, seed, pool);
+    labels = new int[data.getNumberOfExamples()];
+    Arrays.fill(labels, -1);
+    accumulator = new ClusterAccumulator(data, C.length);
     for (int centroidIndex : centroidIndexes) {
       Tuple centroidI = data.getItemSet(centroidIndex);
-      add(new Cluster(centroidI));
+      add(new Cluster(centroidI, this, i));
     }
+    centroids = new double[C.length][data.getNumberOfAttributes()];
+    encodeCentroids();
+  }
+
+  /**
+   * Restituisce il numero di cluster.
+   *
+   * @return Il numero di cluster.
+   */
+  int size() {
+    return C.length;
   }
 
+  /**
+   * Restituisce i centroidi in forma piatta, nell'ordine dei cluster; l'array non va modificato.
+   *
+   * @return I centroidi in forma piatta.
+   */
+  double[][] getEncodedCentroids() {
+    return centroids;
+  }
 
   /**
-   * Restituisce il cluster più vicino a una tuple specificata.
+   * Allinea la forma piatta dei centroidi ai centroidi dei cluster.
+   */
+  void encodeCentroids() {
+    for (int c = 0; c < C.length; c++)
+      C[c].getCentroid().encode(centroids[c]);
+  }
+
+
+  /**
+   * Restituisce il cluster più vicino a una transazione specificata.
+   * La distanza è calcolata sulle colonne di Data e sui centroidi in forma piatta, senza allocazioni.
    *
-   * @param tuple Tuple di cui trovare il cluster più vicino.
-   * @return Il cluster più vicino alla tuple.
+   * @param data Oggetto Data contenente le informazioni sui dati.
+   * @param id   Identificatore della transazione di cui trovare il cluster più vicino.
+   * @return Il cluster più vicino alla transazione.
    */
-  Cluster nearestCluster(Tuple tuple) {
-    double min = tuple.getDistance(C[0].getCentroid()), tmp;
-    Cluster nearest = C[0];
+  Cluster nearestCluster(Data data, int id) {
+    double min = data.distance(id, centroids[0]), tmp;
+    int nearest = 0;
     for (int i = 1; i < C.length; i++) {
-      tmp = tuple.getDistance(C[i].getCentroid());
+      tmp = data.distance(id, centroids[i]);
       if (tmp < min) {
         min = tmp;
-        nearest = C[i];
+        nearest = i;
       }
     }
-    return nearest;
+    return C[nearest];
   }
 
   /**
-   * Restituisce il cluster corrente di una transazione specificata.
+   * Restituisce l'etichetta di una transazione.
    *
    * @param id Identificatore della transazione.
-   * @return Il cluster corrente della transazione o null se non è clusterizzata in nessun cluster.
+   * @return La posizione del cluster che contiene la transazione, -1 se non è clusterizzata.
    */
-  Cluster currentCluster(int id) {
-    for (Cluster cluster : C) {
-      if (cluster.contain(id))
-        return cluster;
+  int labelOf(int id) {
+    return labels[id];
+  }
+
+  /**
+   * Sposta una transazione nel cluster specificato aggiornando etichetta e cardinalità dei cluster coinvolti.
+   *
+   * @param id    Identificatore della transazione.
+   * @param label La posizione del cluster di destinazione, -1 per rimuovere la transazione da ogni cluster.
+   * @return true se la transazione cambia cluster, false altrimenti.
+   */
+  boolean assign(int id, int label) {
+    int old = labels[id];
+    if (old == label)
+      return false;
+    if (old >= 0) {
+      C[old].addToSize(-1);
+      if (accumulator != null) accumulator.remove(id, old);
+    }
+    if (label >= 0) {
+      C[label].addToSize(1);
+      if (accumulator != null) accumulator.add(id, label);
     }
-    return null;
+    labels[id] = label;
+    return true;
+  }
+
+  /**
+   * Raccoglie le transazioni con una determinata etichetta scorrendo l'array di etichette.
+   *
+   * @param label La posizione del cluster.
+   * @param size  Il numero di transazioni con l'etichetta specificata.
+   * @return Un array con gli identificatori delle transazioni, in ordine crescente.
+   */
+  int[] members(int label, int size) {
+    int[] ids = new int[size];
+    int n = 0;
+    for (int id = 0; id < labels.length && n < size; id++)
+      if (labels[id] == label)
+        ids[n++] = id;
+    return ids;
   }
 
   /**
-   * Aggiorna i centroidi di tutti i cluster.
+   * Aggiorna i centroidi di tutti i cluster a partire dalle statistiche accumulate durante l'assegnamento,
+   * in tempo O(k·m) indipendente dal numero di transazioni.
    *
    * @param data Oggetto Data contenente le informazioni sui dati.
    */
   void updateCentroids(Data data) {
     for (Cluster cluster : C) {
-      cluster.computeCentroid(data);
+      accumulator.updateCentroid(cluster.getIndex(), cluster.getCentroid());
+    }
+    encodeCentroids();
+  }
+
+  /**
+   * Aggiorna i centroidi di tutti i cluster con lo stato dei centroidi incrementali del K-Means a mini-batch.
+   *
+   * @param online I centroidi incrementali.
+   */
+  void updateCentroids(OnlineCentroids online) {
+    for (Cluster cluster : C) {
+      online.updateCentroid(cluster.getIndex(), cluster.getCentroid());
+    }
+    encodeCentroids();
+  }
+
+  /**
+   * Calcola l'errore quadratico (SSE) del clustering: la somma dei quadrati delle distanze di ciascuna
+   * transazione dal centroide del proprio cluster. Il calcolo si interrompe non appena la somma parziale
+   * supera la soglia specificata.
+   *
+   * @param data  Oggetto Data contenente le informazioni sui dati.
+   * @param limit Soglia oltre la quale il calcolo viene interrotto.
+   * @return L'errore quadratico, o un valore parziale maggiore di limit se la soglia è stata superata.
+   */
+  double error(Data data, double limit) {
+    double sse = 0;
+    for (int id = 0; id < labels.length && sse <= limit; id++) {
+      if (labels[id] < 0) continue;
+      double d = data.distance(id, centroids[labels[id]]);
+      sse += d * d;
     }
+    return sse;
   }
 
   /**
@@ -122,11 +272,11 @@ public class ClusterSet implements Serializable {
    * @return Una stringa che rappresenta l'insieme di cluster.
    */
   public String toString() {
-    String str = "";
+    StringBuilder str = new StringBuilder();
     for (int i = 0; i < C.length; i++) {
-      str += i + ": " + C[i] + "\n";
+      str.append(i).append(": ").append(C[i]).append("\n");
     }
-    return str;
+    return str.toString();
   }
 
   /**
@@ -137,13 +287,87 @@ public class ClusterSet implements Serializable {
    * @return Una stringa dettagliata che rappresenta l'insieme di cluster.
    */
   public String toString(Data data) {
-    String str = "";
+    StringBuilder str = new StringBuilder();
     for (int i = 0; i < C.length; i++) {
       if (C[i] != null) {
-        str += i + ": " + C[i].toString(data) + "\n";
+        str.append(i).append(": ");
+        C[i].appendTo(data, str);
+        str.append("\n");
       }
     }
-    return str;
+    return str.toString();
+  }
+
+  /**
+   * Restituisce il riepilogo dell'insieme di cluster: per ogni cluster il centroide, il numero di transazioni
+   * e la loro distanza media dal centroide, calcolati con un'unica scansione delle etichette.
+   * Gli esempi di ciascun cluster si ottengono a pagine con {@link #appendMembers(Data, int, int, int, StringBuilder)}.
+   *
+   * @param data Oggetto Data su cui è stato addestrato l'insieme di cluster.
+   * @return Il riepilogo in forma di stringa, una riga per cluster.
+   * @throws IllegalArgumentException Eccezione lanciata se data non è quello dell'addestramento.
+   */
+  public String summary(Data data) {
+    checkData(data);
+    double[][] flat = new double[C.length][data.getNumberOfAttributes()];
+    for (int c = 0; c < C.length; c++)
+      C[c].getCentroid().encode(flat[c]);
+    double[] sums = new double[C.length];
+    for (int id = 0; id < labels.length; id++)
+      if (labels[id] >= 0)
+        sums[labels[id]] += data.distance(id, flat[labels[id]]);
+    StringBuilder str = new StringBuilder();
+    for (int c = 0; c < C.length; c++) {
+      str.append(c).append(": ");
+      C[c].appendCentroid(str);
+      str.append(" Size=").append(C[c].getSize())
+          .append(" AvgDistance=").append(sums[c] / C[c].getSize()).append("\n");
+    }
+    return str.toString();
+  }
+
+  /**
+   * Aggiunge a str una pagina di esempi del cluster specificato, a partire dalla transazione cursor inclusa.
+   * Il cursore restituito va usato per la pagina successiva; scorrere tutte le pagine di un cluster richiede
+   * complessivamente una sola scansione delle etichette.
+   *
+   * @param data    Oggetto Data su cui è stato addestrato l'insieme di cluster.
+   * @param cluster La posizione del cluster.
+   * @param cursor  Identificatore della transazione da cui iniziare, 0 per la prima pagina.
+   * @param limit   Numero massimo di esempi della pagina, almeno 1.
+   * @param str     Il buffer di destinazione.
+   * @return Il cursore della pagina successiva, -1 se gli esempi del cluster sono terminati.
+   * @throws IllegalArgumentException Eccezione lanciata se data non è quello dell'addestramento o se cluster,
+   *                                  cursor o limit non sono validi.
+   */
+  public int appendMembers(Data data, int cluster, int cursor, int limit, StringBuilder str) {
+    checkData(data);
+    if (cluster < 0 || cluster >= C.length)
+      throw new IllegalArgumentException("Cluster inesistente: " + cluster);
+    if (cursor < 0 || limit < 1)
+      throw new IllegalArgumentException("Cursore o dimensione della pagina non validi");
+    double[] flat = new double[data.getNumberOfAttributes()];
+    C[cluster].getCentroid().encode(flat);
+    int id = cursor;
+    for (int n = 0; id < labels.length && n < limit; id++) {
+      if (labels[id] == cluster) {
+        Cluster.appendExample(data, id, data.distance(id, flat), str);
+        n++;
+      }
+    }
+    while (id < labels.length && labels[id] != cluster) id++;
+    return id < labels.length ? id : -1;
+  }
+
+  /**
+   * Verifica che l'oggetto Data sia compatibile con le etichette dell'addestramento.
+   *
+   * @param data Oggetto Data da verificare.
+   * @throws IllegalArgumentException Eccezione lanciata se il numero di transazioni non coincide.
+   */
+  private void checkData(Data data) {
+    if (labels.length != data.getNumberOfExamples())
+      throw new IllegalArgumentException("I dati non sono quelli dell'addestramento dell'insieme di cluster");
   }
 
 }
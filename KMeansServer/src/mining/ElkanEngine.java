@@ -0,0 +1,221 @@
+package mining;
+
+import data.Data;
+
+/**
+ * La classe ElkanEngine implementa il passo di assegnamento accelerato di Elkan.
+ * Per ogni transazione mantiene un limite superiore alla distanza dal proprio centroide e un limite inferiore
+ * alla distanza da ciascun centroide; insieme alle distanze tra centroidi, la disuguaglianza triangolare
+ * (valida perché la distanza mista L1 scalata più Hamming è una metrica) permette di scartare le distanze
+ * che non possono cambiare l'assegnamento. Richiede memoria O(n·k) per i limiti inferiori.
+ */
+class ElkanEngine extends AssignmentEngine {
+
+  /**
+   * Margine relativo applicato ai confronti con i limiti, così che errori di arrotondamento o distanze
+   * uguali non portino mai a scartare un centroide che l'assegnamento classico sceglierebbe.
+   */
+  static final double EPS = 1e-10;
+
+  /**
+   * Numero massimo di limiti inferiori (n·k), pari alla lunghezza massima di un array Java.
+   */
+  static final long MAX_BOUNDS = Integer.MAX_VALUE - 8;
+
+  /**
+   * Frazione della memoria massima della JVM che i limiti inferiori di un'esecuzione possono occupare,
+   * così che restino memoria per i dati e per gli altri addestramenti in corso.
+   */
+  static final double MEMORY_FRACTION = 0.25;
+
+  /**
+   * Numero di cluster.
+   */
+  private final int k;
+
+  /**
+   * Limite superiore alla distanza di ciascuna transazione dal centroide a cui è assegnata.
+   */
+  private final double[] upper;
+
+  /**
+   * Indica se il limite superiore di ciascuna transazione coincide con la distanza effettiva.
+   */
+  private final boolean[] tight;
+
+  /**
+   * Limiti inferiori: lower[i * k + c] è un limite inferiore alla distanza della transazione i dal centroide c.
+   */
+  private final double[] lower;
+
+  /**
+   * Distanze tra i centroidi correnti.
+   */
+  private final double[][] centerDistances;
+
+  /**
+   * Metà della distanza di ciascun centroide dal centroide più vicino.
+   */
+  private final double[] halfNearest;
+
+  /**
+   * Spostamento di ciascun centroide nell'ultimo aggiornamento.
+   */
+  private final double[] shifts;
+
+  /**
+   * Centroidi in forma piatta all'iterazione precedente, null prima della prima iterazione.
+   */
+  private double[][] previous;
+
+  /**
+   * Indica se i limiti inferiori di n transazioni e k cluster possono essere memorizzati: in un unico array
+   * e in non più di MEMORY_FRACTION della memoria massima della JVM (8 byte per limite).
+   *
+   * @param n Numero di transazioni.
+   * @param k Numero di cluster.
+   * @return true se n·k non supera MAX_BOUNDS e i limiti stanno nella frazione di memoria consentita.
+   */
+  static boolean fits(int n, int k) {
+    long bounds = (long) n * k;
+    return bounds <= MAX_BOUNDS && bounds * Double.BYTES <= Runtime.getRuntime().maxMemory() * MEMORY_FRACTION;
+  }
+
+  /**
+   * Costruttore della classe ElkanEngine.
+   *
+   * @param set  L'insieme di cluster, con i centroidi già inizializzati.
+   * @param data L'oggetto Data contenente le transazioni.
+   * @throws IllegalArgumentException Eccezione lanciata se i limiti inferiori non possono essere memorizzati (vedi fits).
+   */
+  ElkanEngine(ClusterSet set, Data data) {
+    super(set, data);
+    k = set.size();
+    int n = data.getNumberOfExamples();
+    if (!fits(n, k))
+      throw new IllegalArgumentException("Troppi limiti inferiori per Elkan: " + n + " transazioni per " + k + " cluster");
+    upper = new double[n];
+    tight = new boolean[n];
+    lower = new double[(int) ((long) n * k)];
+    centerDistances = new double[k][k];
+    halfNearest = new double[k];
+    shifts = new double[k];
+  }
+
+  Algorithm getAlgorithm() {
+    return Algorithm.ELKAN;
+  }
+
+  /**
+   * Calcola lo spostamento dei centroidi rispetto all'iterazione precedente e le distanze tra i centroidi.
+   */
+  void prepare() {
+    double[][] centroids = set.getEncodedCentroids();
+    if (previous == null) {
+      previous = new double[k][];
+    } else {
+      for (int c = 0; c < k; c++)
+        shifts[c] = data.distance(previous[c], centroids[c]);
+      overheadComputations += k;
+    }
+    for (int c = 0; c < k; c++)
+      previous[c] = centroids[c].clone();
+    for (int c = 0; c < k; c++) {
+      halfNearest[c] = Double.POSITIVE_INFINITY;
+      for (int j = 0; j < c; j++) {
+        double d = data.distance(centroids[c], centroids[j]);
+        centerDistances[c][j] = d;
+        centerDistances[j][c] = d;
+      }
+    }
+    overheadComputations += (long) k * (k - 1) / 2;
+    for (int c = 0; c < k; c++)
+      for (int j = 0; j < k; j++)
+        if (j != c)
+          halfNearest[c] = Math.min(halfNearest[c], 0.5 * centerDistances[c][j]);
+  }
+
+  /**
+   * Verifica se un limite inferiore esclude con certezza un centroide, dato il limite superiore corrente.
+   *
+   * @param bound Il limite inferiore alla distanza dal centroide candidato.
+   * @param u     Il limite superiore alla distanza dal centroide corrente.
+   * @return true se il centroide candidato non può essere più vicino (né a pari distanza).
+   */
+  static boolean excludes(double bound, double u) {
+    return bound > u * (1 + EPS) + EPS;
+  }
+
+  /**
+   * Assegna ciascuna transazione dell'intervallo al cluster più vicino, calcolando solo le distanze
+   * che i limiti non permettono di escludere.
+   *
+   * @param from  Indice della prima transazione (incluso).
+   * @param to    Indice dell'ultima transazione (escluso).
+   * @param delta Gli spostamenti dell'intervallo.
+   */
+  void assign(int from, int to, MembershipDelta delta) {
+    double[][] centroids = set.getEncodedCentroids();
+    long computations = 0;
+    for (int i = from; i < to; i++) {
+      int a = set.labelOf(i);
+      int base = i * k; // non supera n·k, che il costruttore limita a MAX_BOUNDS
+      if (a < 0) {
+        // prima iterazione: tutte le distanze sono calcolate e diventano limiti esatti
+        int best = 0;
+        double u = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < k; c++) {
+          double d = data.distance(i, centroids[c]);
+          lower[base + c] = d;
+          if (d < u) {
+            u = d;
+            best = c;
+          }
+        }
+        computations += k;
+        upper[i] = u;
+        tight[i] = true;
+        delta.addError(u);
+        delta.add(i, best);
+        continue;
+      }
+      // i centroidi si sono spostati: i limiti vengono allentati dello spostamento
+      upper[i] += shifts[a] * (1 + EPS);
+      if (shifts[a] > 0) tight[i] = false;
+      for (int c = 0; c < k; c++)
+        lower[base + c] = Math.max(0, lower[base + c] - shifts[c]);
+      double u = upper[i];
+      if (excludes(halfNearest[a], u)) {
+        delta.addError(u);
+        continue;
+      }
+      boolean t = tight[i];
+      int best = a;
+      for (int c = 0; c < k; c++) {
+        if (c == best) continue;
+        double bound = Math.max(lower[base + c], 0.5 * centerDistances[best][c]);
+        if (excludes(bound, u)) continue;
+        if (!t) {
+          u = data.distance(i, centroids[best]);
+          computations++;
+          lower[base + best] = u;
+          t = true;
+          if (excludes(bound, u)) continue;
+        }
+        double d = data.distance(i, centroids[c]);
+        computations++;
+        lower[base + c] = d;
+        if (d < u || (d == u && c < best)) {
+          best = c;
+          u = d;
+        }
+      }
+      upper[i] = u;
+      tight[i] = t;
+      delta.addError(u);
+      if (best != a)
+        delta.add(i, best);
+    }
+    delta.addDistanceComputations(computations);
+  }
+}
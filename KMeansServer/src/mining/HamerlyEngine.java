@@ -0,0 +1,165 @@
+package mining;
+
+import data.Data;
+
+/**
+ * La classe HamerlyEngine implementa il passo di assegnamento accelerato di Hamerly.
+ * Per ogni transazione mantiene un solo limite superiore (distanza dal proprio centroide) e un solo limite
+ * inferiore (distanza dal secondo centroide più vicino); insieme alla distanza di ciascun centroide dal centroide
+ * più vicino, la disuguaglianza triangolare permette di saltare intere transazioni. La memoria aggiuntiva è O(n),
+ * per cui è adatto alle tabelle in cui i k limiti per transazione di ElkanEngine non entrano in memoria.
+ */
+class HamerlyEngine extends AssignmentEngine {
+
+  /**
+   * Numero di cluster.
+   */
+  private final int k;
+
+  /**
+   * Limite superiore alla distanza di ciascuna transazione dal centroide a cui è assegnata.
+   */
+  private final double[] upper;
+
+  /**
+   * Limite inferiore alla distanza di ciascuna transazione da ogni centroide diverso dal proprio.
+   */
+  private final double[] lower;
+
+  /**
+   * Metà della distanza di ciascun centroide dal centroide più vicino.
+   */
+  private final double[] halfNearest;
+
+  /**
+   * Spostamento di ciascun centroide nell'ultimo aggiornamento.
+   */
+  private final double[] shifts;
+
+  /**
+   * Spostamento massimo dei centroidi nell'ultimo aggiornamento.
+   */
+  private double maxShift = 0;
+
+  /**
+   * Cluster il cui centroide ha registrato lo spostamento massimo, -1 se nessun centroide si è spostato.
+   */
+  private int maxShiftCluster = -1;
+
+  /**
+   * Secondo spostamento massimo dei centroidi, usato per le transazioni del cluster che si è spostato di più.
+   */
+  private double secondShift = 0;
+
+  /**
+   * Centroidi in forma piatta all'iterazione precedente, null prima della prima iterazione.
+   */
+  private double[][] previous;
+
+  /**
+   * Costruttore della classe HamerlyEngine.
+   *
+   * @param set  L'insieme di cluster, con i centroidi già inizializzati.
+   * @param data L'oggetto Data contenente le transazioni.
+   */
+  HamerlyEngine(ClusterSet set, Data data) {
+    super(set, data);
+    k = set.size();
+    int n = data.getNumberOfExamples();
+    upper = new double[n];
+    lower = new double[n];
+    halfNearest = new double[k];
+    shifts = new double[k];
+  }
+
+  Algorithm getAlgorithm() {
+    return Algorithm.HAMERLY;
+  }
+
+  /**
+   * Calcola lo spostamento dei centroidi rispetto all'iterazione precedente e, per ogni centroide,
+   * la metà della distanza dal centroide più vicino.
+   */
+  void prepare() {
+    double[][] centroids = set.getEncodedCentroids();
+    maxShift = 0;
+    secondShift = 0;
+    maxShiftCluster = -1;
+    if (previous == null) {
+      previous = new double[k][];
+    } else {
+      for (int c = 0; c < k; c++) {
+        shifts[c] = data.distance(previous[c], centroids[c]);
+        if (shifts[c] > maxShift) {
+          secondShift = maxShift;
+          maxShift = shifts[c];
+          maxShiftCluster = c;
+        } else if (shifts[c] > secondShift)
+          secondShift = shifts[c];
+      }
+      overheadComputations += k;
+    }
+    for (int c = 0; c < k; c++) {
+      previous[c] = centroids[c].clone();
+      halfNearest[c] = Double.POSITIVE_INFINITY;
+    }
+    for (int c = 0; c < k; c++)
+      for (int j = 0; j < c; j++) {
+        double half = 0.5 * data.distance(centroids[c], centroids[j]);
+        halfNearest[c] = Math.min(halfNearest[c], half);
+        halfNearest[j] = Math.min(halfNearest[j], half);
+      }
+    overheadComputations += (long) k * (k - 1) / 2;
+  }
+
+  /**
+   * Assegna ciascuna transazione dell'intervallo al cluster più vicino; una transazione viene riesaminata
+   * solo se i suoi due limiti non bastano a escludere un cambio di cluster.
+   *
+   * @param from  Indice della prima transazione (incluso).
+   * @param to    Indice dell'ultima transazione (escluso).
+   * @param delta Gli spostamenti dell'intervallo.
+   */
+  void assign(int from, int to, MembershipDelta delta) {
+    double[][] centroids = set.getEncodedCentroids();
+    long computations = 0;
+    for (int i = from; i < to; i++) {
+      int a = set.labelOf(i);
+      if (a >= 0) {
+        // i centroidi si sono spostati: i limiti vengono allentati dello spostamento
+        upper[i] += shifts[a] * (1 + ElkanEngine.EPS);
+        lower[i] = Math.max(0, lower[i] - (a == maxShiftCluster ? secondShift : maxShift));
+        double bound = Math.max(halfNearest[a], lower[i]);
+        if (ElkanEngine.excludes(bound, upper[i])) {
+          delta.addError(upper[i]);
+          continue;
+        }
+        upper[i] = data.distance(i, centroids[a]);
+        computations++;
+        if (ElkanEngine.excludes(bound, upper[i])) {
+          delta.addError(upper[i]);
+          continue;
+        }
+      }
+      // riesame completo: distanza dal centroide più vicino e dal secondo più vicino
+      int best = 0;
+      double first = Double.POSITIVE_INFINITY, second = Double.POSITIVE_INFINITY;
+      for (int c = 0; c < k; c++) {
+        double d = data.distance(i, centroids[c]);
+        if (d < first) {
+          second = first;
+          first = d;
+          best = c;
+        } else if (d < second)
+          second = d;
+      }
+      computations += k;
+      upper[i] = first;
+      lower[i] = second;
+      delta.addError(first);
+      if (best != a)
+        delta.add(i, best);
+    }
+    delta.addDistanceComputations(computations);
+  }
+}
@@ -0,0 +1,38 @@
+package mining;
+
+/**
+ * La classe IterationStatistics raccoglie l'andamento di una iterazione dell'algoritmo K-Means:
+ * il numero di transazioni che hanno cambiato cluster e l'errore quadratico rispetto ai centroidi dell'iterazione.
+ */
+class IterationStatistics {
+
+  /**
+   * Numero di transazioni che hanno cambiato cluster.
+   */
+  private final int moved;
+
+  /**
+   * Errore quadratico del passo di assegnamento (limite superiore per le strategie con limiti).
+   */
+  private final double error;
+
+  /**
+   * Costruttore della classe IterationStatistics.
+   *
+   * @param moved Numero di transazioni che hanno cambiato cluster.
+   * @param error Errore quadratico del passo di assegnamento.
+   */
+  IterationStatistics(int moved, double error) {
+    this.moved = moved;
+    this.error = error;
+  }
+
+  /**
+   * Restituisce una rappresentazione in forma di stringa dell'andamento dell'iterazione.
+   *
+   * @return Una stringa che rappresenta l'andamento dell'iterazione.
+   */
+  public String toString() {
+    return "spostate=" + moved + " SSE=" + error;
+  }
+}
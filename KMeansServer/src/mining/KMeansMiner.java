@@ -1,9 +1,17 @@
 package mining;
 
 import data.Data;
+import data.OnlineCentroids;
 import data.OutOfRangeSampleSize;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.function.DoubleSupplier;
 
 /**
  * La classe KMeansMiner implementa l'algoritmo di clustering K-Means.
@@ -14,7 +22,126 @@ public class KMeansMiner {
     /**
      * Insieme di cluster ottenuto dall'esecuzione dell'algoritmo K-Means.
      */
-    private final ClusterSet C;
+    private ClusterSet C;
+
+    /**
+     * Numero minimo di transazioni per blocco nel passo di assegnamento parallelo:
+     * al di sotto di questa soglia il costo di coordinamento supera il guadagno.
+     */
+    private static final int MIN_BLOCK_SIZE = 4096;
+
+    /**
+     * Numero di thread predefinito per il passo di assegnamento, impostabile per l'intero server.
+     */
+    private static int defaultParallelism = 1;
+
+    /**
+     * Numero di thread usati dal passo di assegnamento di questa esecuzione (1 = sequenziale).
+     */
+    private int parallelism = defaultParallelism;
+
+    /**
+     * Vero se il numero di thread è stato impostato con setParallelism.
+     */
+    private boolean parallelismSet = false;
+
+    /**
+     * Strategia usata per il passo di assegnamento.
+     */
+    private Algorithm algorithm = Algorithm.LLOYD;
+
+    /**
+     * Strategia di assegnamento effettivamente usata dall'ultima esecuzione completa, diversa da algorithm se
+     * ELKAN è stato sostituito da HAMERLY; null per il K-Means a mini-batch.
+     */
+    private Algorithm engineAlgorithm = null;
+
+    /**
+     * Seme del campionamento dei centroidi iniziali, null per usare l'istante corrente.
+     */
+    private Long seed = null;
+
+    /**
+     * Strategia di scelta dei centroidi iniziali.
+     */
+    private Seeding seeding = Seeding.KMEANS_PLUS_PLUS;
+
+    /**
+     * Numero di transazioni campionate a ogni passo del K-Means a mini-batch, 0 per l'esecuzione completa.
+     */
+    private int batchSize = 0;
+
+    /**
+     * Numero di passi del K-Means a mini-batch.
+     */
+    private int steps = 100;
+
+    /**
+     * Numero di distanze calcolate nell'ultima esecuzione, incluse quelle tra centroidi.
+     */
+    private long distanceComputations = 0;
+
+    /**
+     * Numero di distanze tra transazioni e centroidi evitate nell'ultima esecuzione rispetto all'assegnamento classico.
+     */
+    private long skippedDistanceComputations = 0;
+
+    /**
+     * Numero massimo di iterazioni dell'esecuzione completa.
+     */
+    private int maxIterations = Integer.MAX_VALUE;
+
+    /**
+     * Frazione di transazioni spostate al di sotto della quale (o alla quale) l'esecuzione completa si arresta;
+     * con 0 l'esecuzione si arresta solo quando nessuna transazione cambia cluster.
+     */
+    private double movedTolerance = 0;
+
+    /**
+     * Spostamento massimo dei centroidi al di sotto del quale l'esecuzione completa si arresta, 0 per non controllarlo.
+     */
+    private double shiftTolerance = 0;
+
+    /**
+     * Numero di distanze tra centroidi calcolate per il controllo di shiftTolerance nell'ultima esecuzione.
+     */
+    private long shiftComputations = 0;
+
+    /**
+     * Andamento di ciascuna iterazione dell'ultima esecuzione completa.
+     */
+    private final List<IterationStatistics> iterationStatistics = new ArrayList<>();
+
+    /**
+     * Criterio che ha arrestato l'ultima esecuzione.
+     */
+    private String stopCriterion = "";
+
+    /**
+     * Numero di avvii indipendenti dell'addestramento, di cui viene conservato quello con errore minore.
+     */
+    private int restarts = 1;
+
+    /**
+     * Errore quadratico (SSE) del clustering ottenuto dall'ultima esecuzione.
+     */
+    private double error = Double.NaN;
+
+    /**
+     * Errore quadratico dell'ultimo passo di assegnamento rispetto ai centroidi su cui è stato eseguito;
+     * con le strategie che evitano calcoli di distanza è un limite superiore dell'errore esatto.
+     */
+    private double iterationError = 0;
+
+    /**
+     * Vero se il calcolo dell'errore dell'ultima esecuzione è stato interrotto perché già peggiore della soglia ricevuta.
+     */
+    private boolean pruned = false;
+
+    /**
+     * Esito di ciascun avvio dell'ultima esecuzione con più riavvii.
+     */
+    private final List<RestartStatistics> restartStatistics = new ArrayList<>();
 
     /**
      * Costruttore della classe KMeansMiner per inizializzare il KMeansMiner con il numero desiderato di cluster.
@@ -39,8 +166,10 @@ public class KMeansMiner {
             ObjectInputStream in = new ObjectInputStream(new FileInputStream(fileName));
             C = (ClusterSet) in.readObject();
             in.close();
+        } catch (InvalidClassException e) {
+            throw new IOException("Modello salvato in un formato non compatibile: " + e.getMessage(), e);
         } catch (IOException e) {
-            throw new IOException("Errore di I/O");
+            throw new IOException("Errore di I/O: " + e.getMessage(), e);
         } catch (ClassNotFoundException e) {
             throw new ClassNotFoundException("Classe non trovata");
         }
@@ -62,6 +191,202 @@ public class KMeansMiner {
         }
     }
 
+    /**
+     * Imposta il numero di thread predefinito per il passo di assegnamento dei nuovi KMeansMiner.
+     *
+     * @param threads Numero di thread, almeno 1.
+     */
+    public static void setDefaultParallelism(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Il numero di thread deve essere almeno 1");
+        defaultParallelism = threads;
+    }
+
+    /**
+     * Imposta il numero di thread usati dal passo di assegnamento di questo KMeansMiner.
+     *
+     * @param threads Numero di thread, almeno 1 (1 = esecuzione sequenziale).
+     */
+    public void setParallelism(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Il numero di thread deve essere almeno 1");
+        parallelism = threads;
+        parallelismSet = true;
+    }
+
+    /**
+     * Restituisce il numero di thread usati da questo KMeansMiner. Con più avvii e un numero di thread non
+     * impostato con setParallelism è almeno il numero di avvii, così che gli avvii vengano eseguiti in
+     * parallelo.
+     *
+     * @return Numero di thread (1 = esecuzione sequenziale).
+     */
+    public int getParallelism() {
+        return parallelismSet ? parallelism : Math.max(parallelism, restarts);
+    }
+
+    /**
+     * Imposta la strategia usata per il passo di assegnamento.
+     *
+     * @param algorithm La strategia di assegnamento.
+     */
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Imposta il seme del campionamento dei centroidi iniziali, rendendo l'esecuzione riproducibile.
+     *
+     * @param seed Il seme del campionamento.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Imposta la strategia di scelta dei centroidi iniziali.
+     *
+     * @param seeding La strategia di scelta dei centroidi iniziali.
+     */
+    public void setSeeding(Seeding seeding) {
+        this.seeding = seeding;
+    }
+
+    /**
+     * Attiva il K-Means a mini-batch: a ogni passo vengono campionate batchSize transazioni e i centroidi vengono
+     * spostati verso di esse; segue un unico passo di assegnamento completo. Il costo di un passo non dipende
+     * dal numero di transazioni, a fronte di un clustering approssimato.
+     *
+     * @param batchSize Numero di transazioni per passo, 0 per tornare all'esecuzione completa.
+     * @param steps     Numero di passi.
+     */
+    public void setMiniBatch(int batchSize, int steps) {
+        if (batchSize < 0) throw new IllegalArgumentException("La dimensione del batch non può essere negativa");
+        if (steps < 1) throw new IllegalArgumentException("Il numero di passi deve essere almeno 1");
+        this.batchSize = batchSize;
+        this.steps = steps;
+    }
+
+    /**
+     * Imposta il numero massimo di iterazioni dell'esecuzione completa.
+     *
+     * @param maxIterations Numero massimo di iterazioni, almeno 1.
+     */
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations < 1) throw new IllegalArgumentException("Il numero massimo di iterazioni deve essere almeno 1");
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Imposta la frazione di transazioni spostate al di sotto della quale l'esecuzione completa si considera
+     * convergente: con 0.001 l'esecuzione si arresta alla prima iterazione che sposta al più un millesimo
+     * delle transazioni.
+     *
+     * @param fraction Frazione di transazioni spostate, compresa tra 0 e 1.
+     */
+    public void setMovedTolerance(double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) throw new IllegalArgumentException("La frazione di transazioni spostate deve essere compresa tra 0 e 1");
+        movedTolerance = fraction;
+    }
+
+    /**
+     * Imposta lo spostamento dei centroidi al di sotto del quale l'esecuzione completa si considera convergente:
+     * l'esecuzione si arresta alla prima iterazione in cui nessun centroide si sposta di tolerance o più.
+     *
+     * @param tolerance Spostamento massimo dei centroidi, 0 per non controllarlo.
+     */
+    public void setShiftTolerance(double tolerance) {
+        if (!(tolerance >= 0)) throw new IllegalArgumentException("La soglia di spostamento dei centroidi non può essere negativa");
+        shiftTolerance = tolerance;
+    }
+
+    /**
+     * Imposta il numero di avvii indipendenti dell'addestramento. Gli avvii usano semi consecutivi, sono eseguiti
+     * in parallelo come task dello stesso ForkJoinPool usato dai loro passi di assegnamento (con un thread per
+     * avvio se il numero di thread non è stato impostato, vedi getParallelism), condividono lo stesso oggetto
+     * Data in sola lettura e viene conservato il clustering con errore quadratico minore.
+     * Ogni avvio esegue tutte le sue iterazioni: solo il calcolo finale dell'errore esatto si interrompe non
+     * appena la somma parziale supera l'errore del migliore avvio concluso, perché l'avvio non può più risultare
+     * il migliore. Un confronto durante le iterazioni non sarebbe corretto, perché l'errore di un avvio continua
+     * a diminuire fino alla convergenza e un avvio peggiore a metà può concludersi sotto il migliore.
+     *
+     * @param restarts Numero di avvii, almeno 1.
+     */
+    public void setRestarts(int restarts) {
+        if (restarts < 1) throw new IllegalArgumentException("Il numero di avvii deve essere almeno 1");
+        this.restarts = restarts;
+    }
+
+    /**
+     * Restituisce l'errore quadratico (SSE) del clustering ottenuto dall'ultima esecuzione: la somma dei quadrati
+     * delle distanze di ciascuna transazione dal centroide del proprio cluster.
+     *
+     * @return L'errore quadratico.
+     */
+    public double getError() {
+        return error;
+    }
+
+    /**
+     * Restituisce il numero di distanze calcolate nell'ultima esecuzione, incluse quelle tra centroidi.
+     *
+     * @return Il numero di distanze calcolate.
+     */
+    public long getDistanceComputations() {
+        return distanceComputations;
+    }
+
+    /**
+     * Restituisce il numero di distanze tra transazioni e centroidi che l'ultima esecuzione ha evitato
+     * rispetto all'assegnamento classico, che ne calcola n·k per iterazione.
+     *
+     * @return Il numero di distanze evitate.
+     */
+    public long getSkippedDistanceComputations() {
+        return skippedDistanceComputations;
+    }
+
+    /**
+     * Restituisce una descrizione delle statistiche dell'ultima esecuzione.
+     *
+     * @return Le statistiche dell'ultima esecuzione in forma di stringa.
+     */
+    public String getStatistics() {
+        String engine = engineAlgorithm == null || engineAlgorithm == algorithm ? ""
+            : " (eseguito " + engineAlgorithm + ": limiti inferiori oltre la memoria consentita)";
+        return "Algoritmo: " + algorithm + engine + "\n"
+            + "Inizializzazione: " + seeding + "\n"
+            + "Distanze calcolate: " + distanceComputations + "\n"
+            + "Distanze evitate: " + skippedDistanceComputations + "\n"
+            + "Errore quadratico (SSE): " + error + "\n"
+            + "Arresto: " + stopCriterion + "\n"
+            + iterationsToString()
+            + restartsToString();
+    }
+
+    /**
+     * Restituisce la descrizione dell'andamento di ciascuna iterazione dell'ultima esecuzione completa.
+     *
+     * @return L'andamento delle iterazioni in forma di stringa, vuota per il K-Means a mini-batch.
+     */
+    private String iterationsToString() {
+        StringBuilder str = new StringBuilder();
+        for (int it = 0; it < iterationStatistics.size(); it++)
+            str.append("Iterazione ").append(it + 1).append(": ").append(iterationStatistics.get(it)).append("\n");
+        return str.toString();
+    }
+
+    /**
+     * Restituisce la descrizione dell'esito di ciascun avvio dell'ultima esecuzione con più riavvii.
+     *
+     * @return L'esito degli avvii in forma di stringa, vuota se l'esecuzione ha avuto un solo avvio.
+     */
+    private String restartsToString() {
+        if (restartStatistics.isEmpty()) return "";
+        StringBuilder str = new StringBuilder("Avvii: " + restartStatistics.size() + "\n");
+        for (int r = 0; r < restartStatistics.size(); r++)
+            str.append(r + 1).append(": ").append(restartStatistics.get(r)).append("\n");
+        return str.toString();
+    }
+
     /**
      * Restituisce l'insieme di cluster ottenuto dall'esecuzione dell'algoritmo K-Means.
      *
@@ -76,31 +401,267 @@ public class KMeansMiner {
      * Esegue l'algoritmo K-Means sui dati forniti.
      *
      * @param data Oggetto Data contenente le informazioni sui dati.
-     * @return Numero di iterazioni necessarie per raggiungere la convergenza.
+     * @return Numero di iterazioni necessarie per raggiungere la convergenza (dell'avvio migliore, con più riavvii).
      * @throws OutOfRangeSampleSize Eccezione lanciata se il numero di cluster è maggiore del numero di tuple nei dati.
      */
     public int kmeans(Data data) throws OutOfRangeSampleSize {
-        int numberOfIterations = 0;
+        long runSeed = seed != null ? seed : System.currentTimeMillis();
+        restartStatistics.clear();
+        if (restarts > 1)
+            return multiRestart(data, runSeed);
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            return train(data, runSeed, pool, () -> Double.POSITIVE_INFINITY);
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    /**
+     * Esegue un singolo addestramento a partire dal seme specificato e ne calcola l'errore quadratico esatto.
+     * Il calcolo dell'errore si interrompe non appena la somma parziale supera la soglia fornita da cutoff,
+     * letta al termine dell'addestramento: in tal caso l'errore registrato è parziale e pruned è vero.
+     *
+     * @param data    Oggetto Data contenente le informazioni sui dati.
+     * @param runSeed Seme dell'addestramento.
+     * @param pool    Pool per il passo di assegnamento, null per l'esecuzione sequenziale.
+     * @param cutoff  Soglia di errore oltre la quale il calcolo dell'errore viene interrotto.
+     * @return Numero di iterazioni eseguite.
+     * @throws OutOfRangeSampleSize Eccezione lanciata se il numero di cluster è maggiore del numero di tuple nei dati.
+     */
+    private int train(Data data, long runSeed, ForkJoinPool pool, DoubleSupplier cutoff) throws OutOfRangeSampleSize {
+        int numberOfIterations;
+        distanceComputations = 0;
+        shiftComputations = 0;
+        pruned = false;
+        engineAlgorithm = null;
+        iterationStatistics.clear();
         //STEP 1
-        C.initializeCentroids(data);
-        boolean changedCluster;
-        do {
+        C.initializeCentroids(data, seeding, runSeed, pool);
+        if (batchSize > 0) {
+            numberOfIterations = miniBatch(data, new Random(runSeed), pool);
+            skippedDistanceComputations = 0;
+            stopCriterion = "numero di passi del mini-batch";
+        } else {
+            AssignmentEngine engine = algorithm.createEngine(C, data);
+            engineAlgorithm = engine.getAlgorithm();
+            numberOfIterations = fullBatch(data, engine, pool);
+            skippedDistanceComputations = (long) numberOfIterations * data.getNumberOfExamples() * C.size() - distanceComputations;
+            distanceComputations += engine.getOverheadComputations() + shiftComputations;
+        }
+        double limit = cutoff.getAsDouble();
+        error = C.error(data, limit);
+        distanceComputations += data.getNumberOfExamples();
+        pruned = error > limit;
+        return numberOfIterations;
+    }
+
+    /**
+     * Esegue restarts addestramenti indipendenti con semi consecutivi e conserva il clustering con errore
+     * quadratico minore (a parità di errore, quello con seme minore). Ogni avvio lavora su un proprio ClusterSet,
+     * mentre l'oggetto Data è condiviso in sola lettura. Con più di un thread (vedi getParallelism) gli avvii
+     * sono task di un unico ForkJoinPool, su cui vengono eseguiti anche i loro passi di assegnamento; altrimenti
+     * sono eseguiti in sequenza. L'errore del migliore avvio concluso è pubblicato in un accumulatore condiviso e interrompe
+     * il calcolo finale dell'errore degli avvii che lo superano: poiché questi non possono risultare migliori,
+     * il clustering scelto non dipende dall'ordine di completamento degli avvii.
+     *
+     * @param data     Oggetto Data contenente le informazioni sui dati.
+     * @param baseSeed Seme del primo avvio.
+     * @return Numero di iterazioni dell'avvio migliore.
+     * @throws OutOfRangeSampleSize Eccezione lanciata se il numero di cluster è maggiore del numero di tuple nei dati.
+     */
+    private int multiRestart(Data data, long baseSeed) throws OutOfRangeSampleSize {
+        DoubleAccumulator best = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        int threads = getParallelism();
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        List<KMeansMiner> runs = new ArrayList<>(restarts);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(restarts);
+        int[] iterations = new int[restarts];
+        OutOfRangeSampleSize[] failures = new OutOfRangeSampleSize[restarts];
+        try {
+            for (int r = 0; r < restarts; r++) {
+                KMeansMiner run = new KMeansMiner(C.size());
+                run.parallelism = threads;
+                run.algorithm = algorithm;
+                run.seeding = seeding;
+                run.batchSize = batchSize;
+                run.steps = steps;
+                run.maxIterations = maxIterations;
+                run.movedTolerance = movedTolerance;
+                run.shiftTolerance = shiftTolerance;
+                long runSeed = baseSeed + r;
+                int index = r;
+                runs.add(run);
+                Runnable body = () -> {
+                    try {
+                        iterations[index] = run.train(data, runSeed, pool, best::get);
+                        if (!run.pruned) best.accumulate(run.error);
+                    } catch (OutOfRangeSampleSize e) {
+                        failures[index] = e;
+                    }
+                };
+                if (pool == null) body.run();
+                else tasks.add(pool.submit(body));
+            }
+            for (ForkJoinTask<?> task : tasks) task.join();
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+        int bestRun = -1;
+        distanceComputations = 0;
+        skippedDistanceComputations = 0;
+        for (int r = 0; r < restarts; r++) {
+            if (failures[r] != null) throw failures[r];
+            KMeansMiner run = runs.get(r);
+            restartStatistics.add(new RestartStatistics(baseSeed + r, iterations[r], run.error, run.pruned));
+            distanceComputations += run.distanceComputations;
+            skippedDistanceComputations += run.skippedDistanceComputations;
+            if (!run.pruned && (bestRun < 0 || run.error < runs.get(bestRun).error))
+                bestRun = r;
+        }
+        C = runs.get(bestRun).C;
+        error = runs.get(bestRun).error;
+        stopCriterion = runs.get(bestRun).stopCriterion;
+        engineAlgorithm = runs.get(bestRun).engineAlgorithm;
+        iterationStatistics.clear();
+        iterationStatistics.addAll(runs.get(bestRun).iterationStatistics);
+        pruned = false;
+        return iterations[bestRun];
+    }
+
+    /**
+     * Alterna passi di assegnamento e di aggiornamento dei centroidi su tutte le transazioni, finché non
+     * viene soddisfatto uno dei criteri di arresto: la frazione di transazioni spostate non supera movedTolerance
+     * (con 0, nessuna transazione cambia cluster), è stato raggiunto maxIterations, nessun centroide si è spostato
+     * di shiftTolerance o più.
+     * Per ogni iterazione vengono registrati il numero di transazioni spostate e l'errore quadratico.
+     *
+     * @param data   Oggetto Data contenente le informazioni sui dati.
+     * @param engine Strategia di assegnamento.
+     * @param pool   Pool per il passo di assegnamento, null per l'esecuzione sequenziale.
+     * @return Numero di iterazioni eseguite.
+     */
+    private int fullBatch(Data data, AssignmentEngine engine, ForkJoinPool pool) {
+        int n = data.getNumberOfExamples();
+        int numberOfIterations = 0;
+        double[][] previous = null;
+        while (true) {
             numberOfIterations++;
             //STEP 2
-            changedCluster = false;
-            for (int i = 0; i < data.getNumberOfExamples(); i++) {
-                Cluster nearestCluster = C.nearestCluster(data.getItemSet(i));
-                Cluster oldCluster = C.currentCluster(i);
-                boolean currentChange = nearestCluster.addData(i);
-                if (currentChange) changedCluster = true;
-                //rimuovo la tupla dal vecchio cluster
-                if (currentChange && oldCluster != null)
-                    //il nodo va rimosso dal suo vecchio cluster
-                    oldCluster.removeTuple(i);
-            }
+            engine.prepare();
+            int moved = assignmentStep(data, engine, pool);
+            iterationStatistics.add(new IterationStatistics(moved, iterationError));
+            if (shiftTolerance > 0) previous = copyCentroids(previous);
             //STEP 3
             C.updateCentroids(data);
-        } while (changedCluster);
+            if (moved <= movedTolerance * n) {
+                stopCriterion = moved == 0 ? "convergenza" : "frazione di transazioni spostate";
+                break;
+            }
+            if (numberOfIterations >= maxIterations) {
+                stopCriterion = "numero massimo di iterazioni";
+                break;
+            }
+            if (shiftTolerance > 0 && maxShift(data, previous) < shiftTolerance) {
+                stopCriterion = "spostamento dei centroidi";
+                break;
+            }
+        }
         return numberOfIterations;
     }
+
+    /**
+     * Copia la forma piatta dei centroidi correnti, riusando gli array della copia precedente se presente.
+     *
+     * @param target Copia precedente, null alla prima invocazione.
+     * @return La copia dei centroidi correnti.
+     */
+    private double[][] copyCentroids(double[][] target) {
+        double[][] centroids = C.getEncodedCentroids();
+        if (target == null) target = new double[centroids.length][];
+        for (int c = 0; c < centroids.length; c++) {
+            if (target[c] == null) target[c] = centroids[c].clone();
+            else System.arraycopy(centroids[c], 0, target[c], 0, centroids[c].length);
+        }
+        return target;
+    }
+
+    /**
+     * Calcola lo spostamento massimo dei centroidi rispetto a una copia precedente.
+     *
+     * @param data     Oggetto Data contenente le informazioni sui dati.
+     * @param previous Copia precedente dei centroidi in forma piatta.
+     * @return La massima distanza tra un centroide e la sua copia precedente.
+     */
+    private double maxShift(Data data, double[][] previous) {
+        double[][] centroids = C.getEncodedCentroids();
+        double max = 0;
+        for (int c = 0; c < centroids.length; c++)
+            max = Math.max(max, data.distance(previous[c], centroids[c]));
+        shiftComputations += centroids.length;
+        return max;
+    }
+
+    /**
+     * Esegue il K-Means a mini-batch: a ogni passo campiona batchSize transazioni, le assegna ai centroidi correnti
+     * e sposta ciascun centroide verso le proprie transazioni con un tasso di apprendimento per centroide.
+     * Un passo di assegnamento completo finale popola i cluster per la presentazione dei risultati.
+     *
+     * @param data Oggetto Data contenente le informazioni sui dati.
+     * @param rand Generatore di numeri casuali per il campionamento dei batch.
+     * @param pool Pool per il passo di assegnamento finale, null per l'esecuzione sequenziale.
+     * @return Numero di passi eseguiti.
+     */
+    private int miniBatch(Data data, Random rand, ForkJoinPool pool) {
+        int n = data.getNumberOfExamples();
+        OnlineCentroids online = new OnlineCentroids(data, C.size());
+        for (int c = 0; c < C.size(); c++)
+            online.reset(c, C.get(c).getCentroid());
+        int[] batch = new int[batchSize];
+        int[] nearest = new int[batchSize];
+        for (int step = 0; step < steps; step++) {
+            for (int b = 0; b < batchSize; b++) {
+                batch[b] = rand.nextInt(n);
+                nearest[b] = C.nearestCluster(data, batch[b]).getIndex();
+            }
+            for (int b = 0; b < batchSize; b++)
+                online.update(batch[b], nearest[b]);
+            C.updateCentroids(online);
+            distanceComputations += (long) batchSize * C.size();
+        }
+        assignmentStep(data, new LloydEngine(C, data), pool);
+        return steps;
+    }
+
+    /**
+     * Esegue il passo di assegnamento: l'intervallo delle transazioni viene diviso in blocchi, ciascuno
+     * elaborato da un AssignmentTask con il proprio insieme di spostamenti. Alla barriera gli spostamenti
+     * vengono applicati al ClusterSet nell'ordine dei blocchi, così il risultato non dipende dal numero di thread.
+     *
+     * @param data   Oggetto Data contenente le informazioni sui dati.
+     * @param engine Strategia di assegnamento.
+     * @param pool   Pool su cui eseguire i blocchi, null per l'esecuzione sequenziale.
+     * @return Numero di transazioni che hanno cambiato cluster.
+     */
+    private int assignmentStep(Data data, AssignmentEngine engine, ForkJoinPool pool) {
+        int n = data.getNumberOfExamples();
+        int blocks = pool == null ? 1 : Math.max(1, Math.min(parallelism * 4, n / MIN_BLOCK_SIZE));
+        List<AssignmentTask> tasks = new ArrayList<>(blocks);
+        for (int b = 0; b < blocks; b++)
+            tasks.add(new AssignmentTask(engine, (int) ((long) n * b / blocks), (int) ((long) n * (b + 1) / blocks)));
+        if (blocks == 1)
+            tasks.get(0).invoke();
+        else
+            for (AssignmentTask task : tasks) pool.execute(task);
+        int changed = 0;
+        iterationError = 0;
+        for (AssignmentTask task : tasks) {
+            MembershipDelta delta = task.join();
+            changed += delta.size();
+            iterationError += delta.getError();
+            distanceComputations += delta.getDistanceComputations();
+            delta.applyTo(C);
+        }
+        return changed;
+    }
 }
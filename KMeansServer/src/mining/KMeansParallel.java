@@ -0,0 +1,191 @@
+package mining;
+
+import data.Data;
+import data.OutOfRangeSampleSize;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * La classe KMeansParallel sceglie i centroidi iniziali con il metodo k-means||, variante parallela di k-means++
+ * adatta a tabelle grandi. In pochi passaggi sulle transazioni ciascuna transazione viene scelta come candidato
+ * in modo indipendente, con probabilità proporzionale al quadrato della distanza dai candidati già scelti
+ * (sovracampionamento di fattore k per passaggio); i candidati, pesati con il numero di transazioni a loro più
+ * vicine, vengono poi ridotti a k con un k-means++ pesato. Ogni passaggio è parallelizzabile sulle transazioni e
+ * il risultato non dipende dal numero di thread.
+ */
+class KMeansParallel {
+
+  /**
+   * Numero di passaggi di sovracampionamento.
+   */
+  private static final int ROUNDS = 5;
+
+  /**
+   * Numero massimo di passaggi aggiuntivi quando i candidati sono meno di k.
+   */
+  private static final int EXTRA_ROUNDS = 50;
+
+  /**
+   * Sceglie k transazioni come centroidi iniziali.
+   *
+   * @param data Oggetto Data contenente le transazioni.
+   * @param k    Il numero di centroidi.
+   * @param seed Il seme del generatore di numeri casuali.
+   * @param pool Il pool su cui eseguire i passaggi sulle transazioni, null per l'esecuzione sequenziale.
+   * @return Gli indici delle transazioni scelte.
+   * @throws OutOfRangeSampleSize Eccezione lanciata se k è fuori intervallo o supera il numero di transazioni distinte.
+   */
+  static int[] select(Data data, int k, long seed, ForkJoinPool pool) throws OutOfRangeSampleSize {
+    int n = data.getNumberOfExamples();
+    if (k <= 0 || k > n)
+      throw new OutOfRangeSampleSize("Inserire k compreso tra 1 e " + n);
+    int m = data.getNumberOfAttributes();
+    Random rand = new Random(seed);
+    double oversampling = k;
+    double[] minDistances = new double[n];
+    Arrays.fill(minDistances, Double.POSITIVE_INFINITY);
+    int[] candidates = new int[Math.max(16, 2 * k)];
+    int size = 0;
+    candidates[size++] = rand.nextInt(n);
+    KMeansPlusPlus.updateMinDistances(data, candidates[0], minDistances, pool);
+    for (int round = 0; round < ROUNDS || (size < k && round < ROUNDS + EXTRA_ROUNDS); round++) {
+      double phi = 0;
+      for (double d : minDistances)
+        phi += d * d;
+      if (phi <= 0)
+        break;
+      // scelta indipendente di ciascuna transazione, con un numero casuale che dipende solo da seme, passaggio e riga
+      boolean[] chosen = new boolean[n];
+      long roundSeed = mix(seed + round);
+      double factor = oversampling / phi;
+      RangeAction.run(pool, n, (from, to) -> {
+        for (int i = from; i < to; i++)
+          chosen[i] = uniform(roundSeed, i) < factor * minDistances[i] * minDistances[i];
+      });
+      int first = size;
+      for (int i = 0; i < n; i++)
+        if (chosen[i]) {
+          if (size == candidates.length)
+            candidates = Arrays.copyOf(candidates, size * 2);
+          candidates[size++] = i;
+        }
+      double[][] added = new double[size - first][m];
+      for (int c = first; c < size; c++)
+        data.encode(candidates[c], added[c - first]);
+      RangeAction.run(pool, n, (from, to) -> {
+        for (int i = from; i < to; i++)
+          for (double[] center : added)
+            minDistances[i] = Math.min(minDistances[i], data.distance(i, center));
+      });
+    }
+    if (size < k)
+      throw new OutOfRangeSampleSize("Inserire k non superiore al numero di transazioni distinte (" + size + ")");
+    if (size == k)
+      return Arrays.copyOf(candidates, k);
+    return reduce(data, Arrays.copyOf(candidates, size), k, rand, pool);
+  }
+
+  /**
+   * Riduce i candidati a k centroidi con un k-means++ pesato: ogni candidato pesa quanto il numero di transazioni
+   * a cui è più vicino.
+   *
+   * @param data       Oggetto Data contenente le transazioni.
+   * @param candidates Gli indici delle transazioni candidate.
+   * @param k          Il numero di centroidi.
+   * @param rand       Il generatore di numeri casuali.
+   * @param pool       Il pool su cui calcolare i pesi, null per l'esecuzione sequenziale.
+   * @return Gli indici delle transazioni scelte.
+   * @throws OutOfRangeSampleSize Eccezione lanciata se i candidati distinti sono meno di k.
+   */
+  private static int[] reduce(Data data, int[] candidates, int k, Random rand, ForkJoinPool pool) throws OutOfRangeSampleSize {
+    int n = data.getNumberOfExamples();
+    int size = candidates.length;
+    double[][] flats = new double[size][data.getNumberOfAttributes()];
+    for (int c = 0; c < size; c++)
+      data.encode(candidates[c], flats[c]);
+    int[] nearest = new int[n];
+    RangeAction.run(pool, n, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        int best = 0;
+        double min = data.distance(i, flats[0]);
+        for (int c = 1; c < size; c++) {
+          double d = data.distance(i, flats[c]);
+          if (d < min) {
+            min = d;
+            best = c;
+          }
+        }
+        nearest[i] = best;
+      }
+    });
+    double[] weights = new double[size];
+    for (int c : nearest)
+      weights[c]++;
+    double[] minDistances = new double[size];
+    Arrays.fill(minDistances, Double.POSITIVE_INFINITY);
+    int[] centroidIndexes = new int[k];
+    int chosen = pick(weights, null, rand);
+    for (int i = 0; i < k; i++) {
+      if (chosen < 0)
+        throw new OutOfRangeSampleSize("Inserire k non superiore al numero di transazioni distinte (" + i + ")");
+      centroidIndexes[i] = candidates[chosen];
+      for (int c = 0; c < size; c++)
+        minDistances[c] = Math.min(minDistances[c], data.distance(flats[c], flats[chosen]));
+      if (i + 1 < k)
+        chosen = pick(weights, minDistances, rand);
+    }
+    return centroidIndexes;
+  }
+
+  /**
+   * Estrae un candidato con probabilità proporzionale al peso, moltiplicato per il quadrato della distanza
+   * se le distanze sono fornite.
+   *
+   * @param weights   I pesi dei candidati.
+   * @param distances Le distanze dei candidati dai centroidi già scelti, null per usare solo i pesi.
+   * @param rand      Il generatore di numeri casuali.
+   * @return La posizione del candidato estratto, -1 se tutti i pesi sono nulli.
+   */
+  private static int pick(double[] weights, double[] distances, Random rand) {
+    double total = 0;
+    for (int c = 0; c < weights.length; c++)
+      total += distances == null ? weights[c] : weights[c] * distances[c] * distances[c];
+    if (total <= 0)
+      return -1;
+    double r = rand.nextDouble() * total;
+    int last = -1;
+    for (int c = 0; c < weights.length; c++) {
+      double w = distances == null ? weights[c] : weights[c] * distances[c] * distances[c];
+      if (w <= 0) continue;
+      last = c;
+      r -= w;
+      if (r < 0) return c;
+    }
+    return last;
+  }
+
+  /**
+   * Restituisce un numero pseudo-casuale uniforme in [0, 1) che dipende solo dal seme e dalla riga.
+   *
+   * @param seed Il seme del passaggio.
+   * @param row  L'indice della transazione.
+   * @return Un numero in [0, 1).
+   */
+  private static double uniform(long seed, int row) {
+    return (mix(seed + row * 0x9E3779B97F4A7C15L) >>> 11) * 0x1.0p-53;
+  }
+
+  /**
+   * Funzione di mescolamento di SplitMix64.
+   *
+   * @param z Il valore da mescolare.
+   * @return Il valore mescolato.
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
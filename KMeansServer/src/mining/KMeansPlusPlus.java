@@ -0,0 +1,88 @@
+package mining;
+
+import data.Data;
+import data.OutOfRangeSampleSize;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * La classe KMeansPlusPlus sceglie i centroidi iniziali con il metodo k-means++: il primo centroide è una
+ * transazione scelta in modo uniforme, ciascuno dei successivi è estratto con probabilità proporzionale al
+ * quadrato della distanza (la distanza mista del progetto) dal centroide già scelto più vicino.
+ * Il costo è O(n·k) distanze.
+ */
+class KMeansPlusPlus {
+
+  /**
+   * Sceglie k transazioni come centroidi iniziali.
+   *
+   * @param data Oggetto Data contenente le transazioni.
+   * @param k    Il numero di centroidi.
+   * @param seed Il seme del generatore di numeri casuali.
+   * @param pool Il pool su cui aggiornare le distanze, null per l'esecuzione sequenziale.
+   * @return Gli indici delle transazioni scelte.
+   * @throws OutOfRangeSampleSize Eccezione lanciata se k è fuori intervallo o supera il numero di transazioni distinte.
+   */
+  static int[] select(Data data, int k, long seed, ForkJoinPool pool) throws OutOfRangeSampleSize {
+    int n = data.getNumberOfExamples();
+    if (k <= 0 || k > n)
+      throw new OutOfRangeSampleSize("Inserire k compreso tra 1 e " + n);
+    Random rand = new Random(seed);
+    double[] minDistances = new double[n];
+    Arrays.fill(minDistances, Double.POSITIVE_INFINITY);
+    int[] centroidIndexes = new int[k];
+    centroidIndexes[0] = rand.nextInt(n);
+    for (int i = 1; i < k; i++) {
+      updateMinDistances(data, centroidIndexes[i - 1], minDistances, pool);
+      int c = sample(minDistances, rand);
+      if (c < 0)
+        throw new OutOfRangeSampleSize("Inserire k non superiore al numero di transazioni distinte (" + i + ")");
+      centroidIndexes[i] = c;
+    }
+    return centroidIndexes;
+  }
+
+  /**
+   * Aggiorna la distanza di ogni transazione dal centroide più vicino considerando un nuovo centroide.
+   *
+   * @param data         Oggetto Data contenente le transazioni.
+   * @param center       Indice della transazione scelta come nuovo centroide.
+   * @param minDistances Distanza di ogni transazione dal centroide più vicino, aggiornata sul posto.
+   * @param pool         Il pool su cui eseguire l'aggiornamento, null per l'esecuzione sequenziale.
+   */
+  static void updateMinDistances(Data data, int center, double[] minDistances, ForkJoinPool pool) {
+    double[] flat = new double[data.getNumberOfAttributes()];
+    data.encode(center, flat);
+    RangeAction.run(pool, minDistances.length, (from, to) -> {
+      for (int i = from; i < to; i++)
+        minDistances[i] = Math.min(minDistances[i], data.distance(i, flat));
+    });
+  }
+
+  /**
+   * Estrae una posizione con probabilità proporzionale al quadrato della distanza corrispondente.
+   *
+   * @param distances Le distanze.
+   * @param rand      Il generatore di numeri casuali.
+   * @return La posizione estratta, -1 se tutte le distanze sono nulle.
+   */
+  static int sample(double[] distances, Random rand) {
+    double total = 0;
+    for (double d : distances)
+      total += d * d;
+    if (total <= 0)
+      return -1;
+    double r = rand.nextDouble() * total;
+    int last = -1;
+    for (int i = 0; i < distances.length; i++) {
+      double w = distances[i] * distances[i];
+      if (w <= 0) continue;
+      last = i;
+      r -= w;
+      if (r < 0) return i;
+    }
+    return last;
+  }
+}
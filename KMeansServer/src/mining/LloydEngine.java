@@ -0,0 +1,50 @@
+package mining;
+
+import data.Data;
+
+/**
+ * La classe LloydEngine implementa il passo di assegnamento classico (Lloyd): per ogni transazione
+ * vengono calcolate le distanze da tutti i centroidi.
+ */
+class LloydEngine extends AssignmentEngine {
+
+  /**
+   * Costruttore della classe LloydEngine.
+   *
+   * @param set  L'insieme di cluster.
+   * @param data L'oggetto Data contenente le transazioni.
+   */
+  LloydEngine(ClusterSet set, Data data) {
+    super(set, data);
+  }
+
+  Algorithm getAlgorithm() {
+    return Algorithm.LLOYD;
+  }
+
+  /**
+   * Assegna ciascuna transazione dell'intervallo al cluster più vicino calcolando tutte le k distanze.
+   *
+   * @param from  Indice della prima transazione (incluso).
+   * @param to    Indice dell'ultima transazione (escluso).
+   * @param delta Gli spostamenti dell'intervallo.
+   */
+  void assign(int from, int to, MembershipDelta delta) {
+    double[][] centroids = set.getEncodedCentroids();
+    for (int i = from; i < to; i++) {
+      int nearest = 0;
+      double min = data.distance(i, centroids[0]);
+      for (int c = 1; c < centroids.length; c++) {
+        double d = data.distance(i, centroids[c]);
+        if (d < min) {
+          min = d;
+          nearest = c;
+        }
+      }
+      delta.addError(min);
+      if (nearest != set.labelOf(i))
+        delta.add(i, nearest);
+    }
+    delta.addDistanceComputations((long) (to - from) * set.size());
+  }
+}
@@ -0,0 +1,107 @@
+package mining;
+
+import java.util.Arrays;
+
+/**
+ * La classe MembershipDelta raccoglie gli spostamenti di transazioni tra cluster calcolati da un blocco
+ * del passo di assegnamento, insieme al numero di distanze calcolate e all'errore quadratico del blocco. Ogni blocco lavora su un proprio
+ * MembershipDelta, che viene applicato al ClusterSet solo alla barriera di fine iterazione.
+ */
+class MembershipDelta {
+
+  /**
+   * Identificatori delle transazioni che cambiano cluster.
+   */
+  private int[] ids = new int[16];
+
+  /**
+   * Posizione del cluster di destinazione di ciascuna transazione in ids.
+   */
+  private int[] targets = new int[16];
+
+  /**
+   * Numero di spostamenti registrati.
+   */
+  private int size = 0;
+
+  /**
+   * Numero di distanze tra transazioni e centroidi calcolate dal blocco.
+   */
+  private long distanceComputations = 0;
+
+  /**
+   * Somma dei quadrati delle distanze delle transazioni del blocco dal centroide assegnato.
+   */
+  private double error = 0;
+
+  /**
+   * Registra lo spostamento di una transazione in un nuovo cluster.
+   *
+   * @param id     Identificatore della transazione.
+   * @param target Posizione del cluster di destinazione.
+   */
+  void add(int id, int target) {
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size * 2);
+      targets = Arrays.copyOf(targets, size * 2);
+    }
+    ids[size] = id;
+    targets[size] = target;
+    size++;
+  }
+
+  /**
+   * Restituisce il numero di transazioni che cambiano cluster.
+   *
+   * @return Il numero di spostamenti registrati.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Aggiunge al contatore il numero di distanze calcolate.
+   *
+   * @param count Il numero di distanze calcolate.
+   */
+  void addDistanceComputations(long count) {
+    distanceComputations += count;
+  }
+
+  /**
+   * Restituisce il numero di distanze tra transazioni e centroidi calcolate dal blocco.
+   *
+   * @return Il numero di distanze calcolate.
+   */
+  long getDistanceComputations() {
+    return distanceComputations;
+  }
+
+  /**
+   * Aggiunge all'errore del blocco il quadrato della distanza di una transazione dal centroide assegnato.
+   *
+   * @param distance La distanza della transazione dal centroide assegnato, o un suo limite superiore.
+   */
+  void addError(double distance) {
+    error += distance * distance;
+  }
+
+  /**
+   * Restituisce la somma dei quadrati delle distanze delle transazioni del blocco dal centroide assegnato.
+   *
+   * @return L'errore quadratico del blocco.
+   */
+  double getError() {
+    return error;
+  }
+
+  /**
+   * Applica gli spostamenti registrati all'insieme di cluster, nell'ordine in cui sono stati registrati.
+   *
+   * @param set L'insieme di cluster da aggiornare.
+   */
+  void applyTo(ClusterSet set) {
+    for (int i = 0; i < size; i++)
+      set.assign(ids[i], targets[i]);
+  }
+}
@@ -0,0 +1,89 @@
+package mining;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * La classe RangeAction esegue un'operazione su un intervallo di transazioni dividendolo ricorsivamente in blocchi
+ * elaborati in parallelo su un ForkJoinPool. L'operazione deve scrivere solo in posizioni proprie di ciascuna
+ * transazione, così che i blocchi non interferiscano.
+ */
+class RangeAction extends RecursiveAction {
+
+  /**
+   * Numero di versione della forma serializzata, ereditata da ForkJoinTask; i task non vengono mai salvati.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Operazione da eseguire su un blocco di transazioni.
+   */
+  interface Body {
+    /**
+     * Esegue l'operazione sulle transazioni dell'intervallo.
+     *
+     * @param from Indice della prima transazione (incluso).
+     * @param to   Indice dell'ultima transazione (escluso).
+     */
+    void run(int from, int to);
+  }
+
+  /**
+   * Numero di transazioni al di sotto del quale un blocco non viene ulteriormente diviso.
+   */
+  private static final int THRESHOLD = 4096;
+
+  /**
+   * Operazione da eseguire.
+   */
+  private final Body body;
+
+  /**
+   * Indice della prima transazione del blocco (incluso).
+   */
+  private final int from;
+
+  /**
+   * Indice dell'ultima transazione del blocco (escluso).
+   */
+  private final int to;
+
+  /**
+   * Costruttore della classe RangeAction.
+   *
+   * @param body L'operazione da eseguire.
+   * @param from Indice della prima transazione (incluso).
+   * @param to   Indice dell'ultima transazione (escluso).
+   */
+  private RangeAction(Body body, int from, int to) {
+    this.body = body;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Esegue l'operazione sul blocco, dividendolo in due se è più grande della soglia.
+   */
+  protected void compute() {
+    if (to - from <= THRESHOLD) {
+      body.run(from, to);
+    } else {
+      int middle = (from + to) >>> 1;
+      invokeAll(new RangeAction(body, from, middle), new RangeAction(body, middle, to));
+    }
+  }
+
+  /**
+   * Esegue un'operazione sulle transazioni [0, n), in parallelo se è disponibile un pool.
+   *
+   * @param pool Il pool su cui eseguire i blocchi, null per l'esecuzione sequenziale.
+   * @param n    Il numero di transazioni.
+   * @param body L'operazione da eseguire.
+   */
+  static void run(ForkJoinPool pool, int n, Body body) {
+    if (pool == null)
+      body.run(0, n);
+    else
+      pool.invoke(new RangeAction(body, 0, n));
+  }
+}
@@ -0,0 +1,71 @@
+package mining;
+
+/**
+ * La classe RestartStatistics raccoglie l'esito di uno degli avvii indipendenti di un addestramento
+ * con più riavvii: il seme usato, le iterazioni eseguite, l'errore quadratico ottenuto e se l'avvio
+ * è stato interrotto durante il calcolo dell'errore perché già peggiore del migliore avvio concluso.
+ */
+class RestartStatistics {
+
+  /**
+   * Seme dell'avvio.
+   */
+  private final long seed;
+
+  /**
+   * Numero di iterazioni eseguite.
+   */
+  private final int iterations;
+
+  /**
+   * Errore quadratico dell'avvio (parziale se l'avvio è stato interrotto).
+   */
+  private final double error;
+
+  /**
+   * Vero se l'avvio è stato interrotto durante il calcolo dell'errore.
+   */
+  private final boolean pruned;
+
+  /**
+   * Costruttore della classe RestartStatistics.
+   *
+   * @param seed       Seme dell'avvio.
+   * @param iterations Numero di iterazioni eseguite.
+   * @param error      Errore quadratico dell'avvio.
+   * @param pruned     Vero se l'avvio è stato interrotto durante il calcolo dell'errore.
+   */
+  RestartStatistics(long seed, int iterations, double error, boolean pruned) {
+    this.seed = seed;
+    this.iterations = iterations;
+    this.error = error;
+    this.pruned = pruned;
+  }
+
+  /**
+   * Restituisce l'errore quadratico dell'avvio.
+   *
+   * @return L'errore quadratico.
+   */
+  double getError() {
+    return error;
+  }
+
+  /**
+   * Indica se l'avvio è stato interrotto prima della convergenza.
+   *
+   * @return Vero se l'avvio è stato interrotto.
+   */
+  boolean isPruned() {
+    return pruned;
+  }
+
+  /**
+   * Restituisce una rappresentazione in forma di stringa dell'esito dell'avvio.
+   *
+   * @return Una stringa che rappresenta l'esito dell'avvio.
+   */
+  public String toString() {
+    return "seme=" + seed + " iterazioni=" + iterations + " SSE=" + error + (pruned ? " (interrotto)" : "");
+  }
+}
@@ -0,0 +1,60 @@
+package mining;
+
+import data.Data;
+import data.OutOfRangeSampleSize;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * L'enum Seeding rappresenta le strategie disponibili per la scelta dei centroidi iniziali dell'algoritmo K-Means.
+ */
+public enum Seeding {
+
+  /**
+   * RANDOM sceglie k transazioni distinte in modo uniforme (Data.sampling).
+   */
+  RANDOM,
+  /**
+   * KMEANS_PLUS_PLUS sceglie i centroidi con probabilità proporzionale al quadrato della distanza (k-means++).
+   */
+  KMEANS_PLUS_PLUS,
+  /**
+   * KMEANS_PARALLEL usa la variante parallela con sovracampionamento di k-means++ (k-means||), per tabelle grandi.
+   */
+  KMEANS_PARALLEL;
+
+  /**
+   * Sceglie le transazioni da usare come centroidi iniziali.
+   *
+   * @param data Oggetto Data contenente le transazioni.
+   * @param k    Il numero di centroidi.
+   * @param seed Il seme del generatore di numeri casuali.
+   * @param pool Il pool su cui eseguire i passaggi sulle transazioni, null per l'esecuzione sequenziale.
+   * @return Gli indici delle transazioni scelte.
+   * @throws OutOfRangeSampleSize Eccezione lanciata se k è fuori intervallo.
+   */
+  int[] select(Data data, int k, long seed, ForkJoinPool pool) throws OutOfRangeSampleSize {
+    return switch (this) {
+      case RANDOM -> data.sampling(k, seed);
+      case KMEANS_PLUS_PLUS -> KMeansPlusPlus.select(data, k, seed, pool);
+      case KMEANS_PARALLEL -> KMeansParallel.select(data, k, seed, pool);
+    };
+  }
+
+  /**
+   * Restituisce la strategia corrispondente a un nome, accettando anche le forme brevi
+   * random, kmeans++ e kmeans||.
+   *
+   * @param name Il nome della strategia.
+   * @return La strategia corrispondente.
+   * @throws IllegalArgumentException Eccezione lanciata se il nome non corrisponde ad alcuna strategia.
+   */
+  public static Seeding parse(String name) {
+    return switch (name.toLowerCase()) {
+      case "random" -> RANDOM;
+      case "kmeans++", "k-means++" -> KMEANS_PLUS_PLUS;
+      case "kmeans||", "k-means||" -> KMEANS_PARALLEL;
+      default -> valueOf(name.toUpperCase());
+    };
+  }
+}
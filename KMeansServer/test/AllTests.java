@@ -0,0 +1,24 @@
+import data.CsvSourceTest;
+import data.DataSnapshotTest;
+import mining.AssignmentEngineTest;
+import mining.SeedingTest;
+
+/**
+ * Esegue tutte le verifiche del server. Ciascuna verifica lancia AssertionError al primo errore, per cui
+ * l'esecuzione termina con un codice di uscita diverso da 0 se una verifica fallisce.
+ * Le verifiche si compilano insieme ai sorgenti del server, ad esempio dalla cartella KMeansServer:
+ * javac -d out -cp "src/lib/*" $(find src test -name "*.java") e poi java -cp "out:src/lib/*" AllTests.
+ * Gli argomenti server database utente password, se presenti, vengono passati a CsvSourceTest per il
+ * confronto con la tabella playtennis letta dal database.
+ */
+public class AllTests {
+
+    public static void main(String[] args) throws Exception {
+        AssignmentEngineTest.main(new String[0]);
+        SeedingTest.main(new String[0]);
+        CsvSourceTest.main(args);
+        DataSnapshotTest.main(new String[0]);
+        BinaryChannelTest.main(new String[0]);
+        System.out.println("Tutte le verifiche sono state superate");
+    }
+}
@@ -0,0 +1,188 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Verifica il formato dei messaggi di BinaryChannel: scambio di apertura, lettura di richieste con stringhe,
+ * interi e mappe di opzioni, risposte OK ed ERROR con la lunghezza corretta, più risposte sulla stessa
+ * connessione e rifiuto di aperture e lunghezze non valide.
+ * Si esegue con java BinaryChannelTest; in caso di errore lancia AssertionError.
+ */
+public class BinaryChannelTest {
+
+    /**
+     * Lancia AssertionError se la condizione è falsa.
+     *
+     * @param condition La condizione da verificare.
+     * @param message   Il messaggio di errore.
+     */
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    /**
+     * Scrive una stringa come lunghezza in byte seguita dalla codifica UTF-8, come fa il client.
+     *
+     * @param out   Lo stream di destinazione.
+     * @param value La stringa.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Legge una stringa scritta come lunghezza in byte seguita dalla codifica UTF-8.
+     *
+     * @param in Lo stream di origine.
+     * @return La stringa.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O.
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Scrive un messaggio: tipo, lunghezza del contenuto e contenuto.
+     *
+     * @param out     Lo stream di destinazione.
+     * @param type    Il tipo del messaggio.
+     * @param payload Il contenuto.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O.
+     */
+    private static void writeFrame(DataOutputStream out, int type, ByteArrayOutputStream payload) throws IOException {
+        out.writeByte(type);
+        out.writeInt(payload.size());
+        payload.writeTo(out);
+    }
+
+    /**
+     * Crea lo stream di byte inviato dal client: apertura con la versione indicata seguita dalle richieste.
+     *
+     * @param version La versione richiesta dal client.
+     * @return Il buffer con il messaggio di apertura, a cui aggiungere le richieste.
+     * @throws IOException Eccezione lanciata in caso di errori di I/O.
+     */
+    private static ByteArrayOutputStream clientOpening(int version) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(BinaryChannel.MAGIC);
+        out.writeByte(version);
+        return bytes;
+    }
+
+    public static void main(String[] args) throws Exception {
+        check(BinaryChannel.matches(0x4B, 0x4D), "MAGIC non riconosciuto");
+        check(!BinaryChannel.matches(0xAC, 0xED), "intestazione della serializzazione scambiata per MAGIC");
+
+        // due richieste: una con stringhe, intero e opzioni, una vuota
+        ByteArrayOutputStream client = clientOpening(3);
+        DataOutputStream out = new DataOutputStream(client);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream p = new DataOutputStream(payload);
+        writeString(p, "playtennis");
+        writeString(p, "città");
+        p.writeInt(-17);
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("algorithm", "elkan");
+        options.put("seed", "42");
+        p.writeInt(options.size());
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            writeString(p, option.getKey());
+            writeString(p, option.getValue());
+        }
+        writeFrame(out, 5, payload);
+        writeFrame(out, 4, new ByteArrayOutputStream());
+
+        ByteArrayOutputStream server = new ByteArrayOutputStream();
+        BinaryChannel channel = new BinaryChannel(new ByteArrayInputStream(client.toByteArray()), server);
+        DataInputStream reply = new DataInputStream(new ByteArrayInputStream(server.toByteArray()));
+        check(reply.readInt() == BinaryChannel.MAGIC, "MAGIC non restituito");
+        check(reply.readByte() == BinaryChannel.VERSION, "versione non ridotta a quella del server");
+        check(reply.available() == 0, "byte in eccesso nella risposta di apertura");
+
+        check(channel.readRequest() == 5, "tipo della richiesta errato");
+        check(channel.readString().equals("playtennis"), "stringa errata");
+        check(channel.readString().equals("città"), "stringa UTF-8 errata");
+        check(channel.readInt() == -17, "intero errato");
+        check(channel.readOptions().equals(options), "opzioni errate");
+
+        server.reset();
+        channel.writeResult("OK");
+        channel.writeString("centroidi");
+        channel.writeInt(3);
+        channel.endResponse();
+        channel.writeResult("Tabella inesistente");
+        channel.endResponse();
+        reply = new DataInputStream(new ByteArrayInputStream(server.toByteArray()));
+        check(reply.readByte() == BinaryChannel.OK, "tipo OK atteso");
+        check(reply.readInt() == 4 + "centroidi".length() + 4, "lunghezza della risposta OK errata");
+        check(readString(reply).equals("centroidi") && reply.readInt() == 3, "contenuto della risposta OK errato");
+        check(reply.readByte() == BinaryChannel.ERROR, "tipo ERROR atteso");
+        check(reply.readInt() == 4 + "Tabella inesistente".length(), "lunghezza della risposta ERROR errata");
+        check(readString(reply).equals("Tabella inesistente"), "messaggio di errore errato");
+        check(reply.available() == 0, "byte in eccesso dopo le risposte");
+        check(channel.getLargestResponse() == 4 + "Tabella inesistente".length(), "risposta più grande errata");
+
+        check(channel.readRequest() == 4, "seconda richiesta non letta");
+
+        // una risposta più grande del buffer conservato non viene trattenuta
+        server.reset();
+        channel.writeResult("OK");
+        channel.writeString("x".repeat(200_000));
+        channel.endResponse();
+        check(channel.getRetainedBytes() == 0, "buffer grande trattenuto dopo la risposta");
+        check(server.size() == 1 + 4 + 4 + 200_000, "risposta grande troncata");
+
+        // apertura non valida
+        try {
+            new BinaryChannel(new ByteArrayInputStream(new byte[]{(byte) 0xAC, (byte) 0xED, 0, 5, 1}), new ByteArrayOutputStream());
+            check(false, "apertura con MAGIC errato accettata");
+        } catch (StreamCorruptedException e) {
+            // atteso
+        }
+        try {
+            new BinaryChannel(new ByteArrayInputStream(clientOpening(0).toByteArray()), new ByteArrayOutputStream());
+            check(false, "versione 0 accettata");
+        } catch (StreamCorruptedException e) {
+            // atteso
+        }
+
+        // lunghezza della richiesta oltre il limite e stringa più lunga del contenuto
+        client = clientOpening(1);
+        out = new DataOutputStream(client);
+        out.writeByte(0);
+        out.writeInt(Integer.MAX_VALUE);
+        channel = new BinaryChannel(new ByteArrayInputStream(client.toByteArray()), new ByteArrayOutputStream());
+        try {
+            channel.readRequest();
+            check(false, "lunghezza della richiesta oltre il limite accettata");
+        } catch (StreamCorruptedException e) {
+            // atteso
+        }
+        client = clientOpening(1);
+        out = new DataOutputStream(client);
+        payload = new ByteArrayOutputStream();
+        new DataOutputStream(payload).writeInt(1000);
+        writeFrame(out, 0, payload);
+        channel = new BinaryChannel(new ByteArrayInputStream(client.toByteArray()), new ByteArrayOutputStream());
+        channel.readRequest();
+        try {
+            channel.readString();
+            check(false, "stringa più lunga della richiesta accettata");
+        } catch (StreamCorruptedException e) {
+            // atteso
+        }
+        System.out.println("BinaryChannelTest: OK");
+    }
+}
@@ -0,0 +1,252 @@
+package data;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Verifica che CsvSource costruisca lo stesso oggetto Data della lettura dal database: per la tabella
+ * playtennis di script.sql vengono confrontati attributi, estremi, domini e transazioni.
+ * Con gli argomenti server database utente password il riferimento è la tabella letta dal database;
+ * senza argomenti è l'oggetto Data che la lettura dal database costruisce dalle stesse righe.
+ * Verifica inoltre che la lettura parallela a intervalli coincida con quella a un thread, che più colonne
+ * ritenute continue e poi risultate discrete vengano riconosciute e che le righe ripetute vengano conservate
+ * una sola volta, come con SELECT DISTINCT.
+ * Si esegue con java data.CsvSourceTest [server database utente password]; in caso di errore lancia AssertionError.
+ */
+public class CsvSourceTest {
+
+  /**
+   * Le righe della tabella playtennis, come inserite da script.sql.
+   */
+  private static final String[][] PLAYTENNIS = {
+      {"sunny", "30.3", "high", "weak", "no"},
+      {"sunny", "30.3", "high", "strong", "no"},
+      {"overcast", "30.0", "high", "weak", "yes"},
+      {"rain", "13.0", "high", "weak", "yes"},
+      {"rain", "0.0", "normal", "weak", "yes"},
+      {"rain", "0.0", "normal", "strong", "no"},
+      {"overcast", "0.1", "normal", "strong", "yes"},
+      {"sunny", "13.0", "high", "weak", "no"},
+      {"sunny", "0.1", "normal", "weak", "yes"},
+      {"rain", "12.0", "normal", "weak", "yes"},
+      {"sunny", "12.5", "normal", "strong", "yes"},
+      {"overcast", "12.5", "high", "strong", "yes"},
+      {"overcast", "29.21", "normal", "weak", "yes"},
+      {"rain", "12.5", "high", "strong", "no"}
+  };
+
+  /**
+   * I nomi delle colonne della tabella playtennis.
+   */
+  private static final String[] NAMES = {"outlook", "temperature", "umidity", "wind", "play"};
+
+  /**
+   * Lancia AssertionError se la condizione è falsa.
+   *
+   * @param condition La condizione da verificare.
+   * @param message   Il messaggio di errore.
+   */
+  private static void check(boolean condition, String message) {
+    if (!condition) throw new AssertionError(message);
+  }
+
+  /**
+   * Costruisce l'oggetto Data che la lettura dal database produce per le righe di playtennis: la colonna
+   * temperature è continua, le altre discrete con i domini in ordine lessicografico.
+   *
+   * @return L'oggetto Data atteso.
+   */
+  private static Data expectedPlaytennis() {
+    int n = PLAYTENNIS.length, m = NAMES.length;
+    List<Attribute> attributes = new ArrayList<>(m);
+    double[][] continuousColumns = new double[m][];
+    int[][] discreteColumns = new int[m][];
+    for (int j = 0; j < m; j++) {
+      if (j == 1) {
+        continuousColumns[j] = new double[n];
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+          continuousColumns[j][i] = Double.parseDouble(PLAYTENNIS[i][j]);
+          min = Math.min(min, continuousColumns[j][i]);
+          max = Math.max(max, continuousColumns[j][i]);
+        }
+        attributes.add(new ContinuousAttribute(NAMES[j], j, min, max));
+      } else {
+        Set<String> values = new HashSet<>();
+        for (String[] row : PLAYTENNIS) values.add(row[j]);
+        DiscreteAttribute attribute = new DiscreteAttribute(NAMES[j], j, values);
+        discreteColumns[j] = new int[n];
+        for (int i = 0; i < n; i++) discreteColumns[j][i] = attribute.getCode(PLAYTENNIS[i][j]);
+        attributes.add(attribute);
+      }
+    }
+    return new Data(attributes, continuousColumns, discreteColumns, n);
+  }
+
+  /**
+   * Scrive le righe in un file CSV temporaneo.
+   *
+   * @param names     I nomi delle colonne.
+   * @param rows      Le righe.
+   * @param separator Il carattere separatore dei campi.
+   * @return Il percorso del file.
+   * @throws IOException Eccezione lanciata in caso di errori di I/O.
+   */
+  private static Path writeCsv(String[] names, String[][] rows, char separator) throws IOException {
+    Path file = Files.createTempFile("playtennis", ".csv");
+    file.toFile().deleteOnExit();
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+      out.println(String.join(String.valueOf(separator), names));
+      for (String[] row : rows) out.println(String.join(String.valueOf(separator), row));
+    }
+    return file;
+  }
+
+  /**
+   * Restituisce le transazioni in forma di stringa, ordinate, così che il confronto non dipenda dall'ordine
+   * delle righe restituito dal database. I valori continui sono arrotondati a 4 decimali, perché il database
+   * li memorizza in virgola mobile a precisione singola.
+   *
+   * @param data L'oggetto Data.
+   * @return Le transazioni ordinate.
+   */
+  private static List<String> sortedRows(Data data) {
+    List<String> rows = new ArrayList<>(data.getNumberOfExamples());
+    for (int i = 0; i < data.getNumberOfExamples(); i++) {
+      StringBuilder row = new StringBuilder();
+      for (int j = 0; j < data.getNumberOfAttributes(); j++) {
+        if (data.getAttribute(j) instanceof ContinuousAttribute)
+          row.append(String.format("%.4f", data.getContinuousColumn(j)[i])).append(';');
+        else
+          row.append(data.getAttributeValue(i, j)).append(';');
+      }
+      rows.add(row.toString());
+    }
+    rows.sort(null);
+    return rows;
+  }
+
+  /**
+   * Verifica che due oggetti Data abbiano gli stessi attributi e le stesse transazioni.
+   *
+   * @param expected L'oggetto Data atteso.
+   * @param actual   L'oggetto Data da verificare.
+   * @param run      La descrizione del confronto, per i messaggi di errore.
+   */
+  static void checkSame(Data expected, Data actual, String run) {
+    check(expected.getNumberOfExamples() == actual.getNumberOfExamples(), run + ": " + actual.getNumberOfExamples()
+        + " transazioni invece di " + expected.getNumberOfExamples());
+    check(expected.getNumberOfAttributes() == actual.getNumberOfAttributes(), run + ": numero di attributi diverso");
+    for (int j = 0; j < expected.getNumberOfAttributes(); j++) {
+      Attribute a = expected.getAttribute(j), b = actual.getAttribute(j);
+      check(a.getName().equals(b.getName()), run + ": attributo " + b.getName() + " invece di " + a.getName());
+      check(a.getClass() == b.getClass(), run + ": tipo diverso per " + a.getName());
+      if (a instanceof ContinuousAttribute ca) {
+        ContinuousAttribute cb = (ContinuousAttribute) b;
+        check(Math.abs(ca.getMin() - cb.getMin()) < 1e-4 && Math.abs(ca.getMax() - cb.getMax()) < 1e-4,
+            run + ": estremi diversi per " + a.getName());
+      } else {
+        Iterator<String> va = ((DiscreteAttribute) a).iterator(), vb = ((DiscreteAttribute) b).iterator();
+        while (va.hasNext() && vb.hasNext())
+          check(va.next().equals(vb.next()), run + ": dominio diverso per " + a.getName());
+        check(!va.hasNext() && !vb.hasNext(), run + ": dominio diverso per " + a.getName());
+      }
+    }
+    check(sortedRows(expected).equals(sortedRows(actual)), run + ": transazioni diverse");
+  }
+
+  /**
+   * Verifica la lettura parallela di un file con più intervalli, in cui due colonne sembrano numeriche nelle
+   * righe esaminate all'inizio e contengono valori non numerici in intervalli diversi.
+   *
+   * @throws Exception Eccezione lanciata se la lettura fallisce.
+   */
+  private static void checkParallelRanges() throws Exception {
+    int n = 120_000;
+    String[][] rows = new String[n][];
+    for (int i = 0; i < n; i++) {
+      rows[i] = new String[]{
+          Integer.toString(i % 97),
+          i == n / 3 ? "n/a" : Double.toString(i * 0.25),
+          i == n - 1 ? "ultimo" : Integer.toString(i % 13),
+          "categoria-" + (i % 5),
+          Double.toString(Math.sqrt(i))};
+    }
+    Path file = writeCsv(new String[]{"a", "b", "c", "d", "e"}, rows, ';');
+    check(Files.size(file) > 3 << 20, "il file di prova deve occupare più intervalli");
+    Data sequential = CsvSource.read(file.toString(), ';', 1);
+    Data parallel = CsvSource.read(file.toString(), ';', 4);
+    boolean[] continuous = {true, false, false, false, true};
+    for (int j = 0; j < continuous.length; j++) {
+      check((sequential.getAttribute(j) instanceof ContinuousAttribute) == continuous[j], "tipo errato per la colonna " + j);
+      check((parallel.getAttribute(j) instanceof ContinuousAttribute) == continuous[j], "tipo errato per la colonna " + j + " con 4 thread");
+      if (continuous[j])
+        check(Arrays.equals(sequential.getContinuousColumn(j), parallel.getContinuousColumn(j)), "colonna " + j + " diversa con 4 thread");
+      else
+        check(Arrays.equals(sequential.getDiscreteColumn(j), parallel.getDiscreteColumn(j)), "colonna " + j + " diversa con 4 thread");
+    }
+    checkSame(sequential, parallel, "4 thread");
+    check(parallel.getAttributeValue(n / 3, 1).equals("n/a"), "valore non numerico perso");
+  }
+
+  /**
+   * Verifica che le righe ripetute, anche in intervalli diversi del file, vengano conservate una sola volta
+   * nella posizione della prima occorrenza.
+   *
+   * @param expected L'oggetto Data atteso per le righe di playtennis.
+   * @param run      La descrizione del riferimento, per i messaggi di errore.
+   * @throws Exception Eccezione lanciata se la lettura fallisce.
+   */
+  private static void checkDuplicates(Data expected, String run) throws Exception {
+    String[][] twice = new String[PLAYTENNIS.length * 2][];
+    for (int i = 0; i < PLAYTENNIS.length; i++) {
+      twice[i] = PLAYTENNIS[i];
+      twice[twice.length - 1 - i] = PLAYTENNIS[i];
+    }
+    Path file = writeCsv(NAMES, twice, ',');
+    for (int threads : new int[]{1, 4})
+      checkSame(expected, CsvSource.read(file.toString(), ',', threads), "CSV con righe ripetute (" + threads + " thread) contro " + run);
+
+    int n = 400_000, distinct = 1000;
+    String[][] rows = new String[n][];
+    for (int i = 0; i < n; i++)
+      rows[i] = new String[]{Integer.toString(i % distinct), "v" + (i % distinct) % 7, Double.toString((i % distinct) * 0.5)};
+    file = writeCsv(new String[]{"a", "b", "c"}, rows, ',');
+    check(Files.size(file) > 3 << 20, "il file di prova deve occupare più intervalli");
+    for (int threads : new int[]{1, 4}) {
+      Data data = CsvSource.read(file.toString(), ',', threads);
+      check(data.getNumberOfExamples() == distinct, data.getNumberOfExamples() + " righe invece di " + distinct + " con " + threads + " thread");
+      for (int i = 0; i < distinct; i++)
+        check(data.getContinuousColumn(0)[i] == i, "riga " + i + " fuori posizione con " + threads + " thread");
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Data expected;
+    String reference;
+    if (args.length == 4) {
+      expected = new Data(args[0], args[1], "playtennis", args[2], args[3]);
+      reference = "database";
+    } else {
+      expected = expectedPlaytennis();
+      reference = "righe di script.sql";
+    }
+    for (char separator : new char[]{',', ';'}) {
+      Path file = writeCsv(NAMES, PLAYTENNIS, separator);
+      for (int threads : new int[]{1, 4})
+        checkSame(expected, CsvSource.read(file.toString(), separator, threads),
+            "CSV (" + separator + ", " + threads + " thread) contro " + reference);
+    }
+    checkParallelRanges();
+    checkDuplicates(expected, reference);
+    System.out.println("CsvSourceTest: OK (riferimento: " + reference + ")");
+  }
+}
@@ -0,0 +1,96 @@
+package data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Verifica che una copia su disco scritta da DataSnapshot venga riletta identica, anche con un numero
+ * dispari di transazioni (blocchi discreti che richiedono l'allineamento), e che i criteri di uso
+ * scartino le copie non utilizzabili.
+ * Si esegue con java data.DataSnapshotTest; in caso di errore lancia AssertionError.
+ */
+public class DataSnapshotTest {
+
+  /**
+   * Lancia AssertionError se la condizione è falsa.
+   *
+   * @param condition La condizione da verificare.
+   * @param message   Il messaggio di errore.
+   */
+  private static void check(boolean condition, String message) {
+    if (!condition) throw new AssertionError(message);
+  }
+
+  /**
+   * Verifica che la copia riletta abbia gli stessi attributi e le stesse colonne dell'originale.
+   *
+   * @param expected L'oggetto Data salvato.
+   * @param actual   L'oggetto Data riletto.
+   * @param run      La descrizione della prova, per i messaggi di errore.
+   */
+  private static void checkIdentical(Data expected, Data actual, String run) {
+    check(actual != null, run + ": copia non riletta");
+    CsvSourceTest.checkSame(expected, actual, run);
+    for (int j = 0; j < expected.getNumberOfAttributes(); j++) {
+      if (expected.getAttribute(j) instanceof ContinuousAttribute)
+        check(Arrays.equals(expected.getContinuousColumn(j), actual.getContinuousColumn(j)), run + ": colonna " + j + " diversa");
+      else
+        check(Arrays.equals(expected.getDiscreteColumn(j), actual.getDiscreteColumn(j)), run + ": colonna " + j + " diversa");
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Path directory = Files.createTempDirectory("snapshot");
+    try {
+      for (int rows : new int[]{1, 7, 1000, 100_001}) {
+        Path csv = directory.resolve("rows" + rows + ".csv");
+        StringBuilder text = new StringBuilder("colore,x,forma,y\n");
+        for (int i = 0; i < rows; i++)
+          text.append("c").append(i % 11).append(',').append(i * 0.5 - 3).append(",f").append(i % 3).append(',')
+              .append(Math.sin(i)).append('\n');
+        Files.writeString(csv, text);
+        Data data = CsvSource.read(csv.toString(), ',', 1);
+        String file = directory.resolve("rows" + rows + ".snap").toString();
+
+        DataSnapshot.setPolicy(DataSnapshot.Policy.VERSION, 0);
+        DataSnapshot.write(data, file, 42);
+        check(!Files.exists(Path.of(file + ".tmp")), rows + " righe: file temporaneo rimasto");
+        checkIdentical(data, DataSnapshot.read(file, 42), rows + " righe");
+        check(DataSnapshot.read(file, 43) == null, rows + " righe: copia di un'altra versione usata");
+
+        DataSnapshot.setPolicy(DataSnapshot.Policy.ALWAYS, 0);
+        checkIdentical(data, DataSnapshot.read(file, 43), rows + " righe, ALWAYS");
+
+        DataSnapshot.setPolicy(DataSnapshot.Policy.MAX_AGE, 60_000);
+        checkIdentical(data, DataSnapshot.read(file, 0), rows + " righe, MAX_AGE");
+
+        DataSnapshot.setPolicy(DataSnapshot.Policy.OFF, 0);
+        check(DataSnapshot.read(file, 42) == null, rows + " righe: copia usata con OFF");
+
+        // una nuova scrittura sostituisce la copia esistente
+        DataSnapshot.setPolicy(DataSnapshot.Policy.VERSION, 0);
+        DataSnapshot.write(data, file, 43);
+        checkIdentical(data, DataSnapshot.read(file, 43), rows + " righe, riscrittura");
+      }
+      DataSnapshot.setPolicy(DataSnapshot.Policy.VERSION, 0);
+      check(DataSnapshot.read(directory.resolve("assente.snap").toString(), 0) == null, "copia inesistente letta");
+      Path corrupt = directory.resolve("corrotta.snap");
+      Files.write(corrupt, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13});
+      try {
+        DataSnapshot.read(corrupt.toString(), 0);
+        check(false, "copia corrotta accettata");
+      } catch (IOException e) {
+        // atteso
+      }
+    } finally {
+      DataSnapshot.setPolicy(DataSnapshot.Policy.OFF, 0);
+      try (var files = Files.list(directory)) {
+        for (Path f : (Iterable<Path>) files::iterator) Files.delete(f);
+      }
+      Files.delete(directory);
+    }
+    System.out.println("DataSnapshotTest: OK");
+  }
+}
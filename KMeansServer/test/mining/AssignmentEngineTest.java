@@ -0,0 +1,106 @@
+package mining;
+
+import data.CsvSource;
+import data.Data;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Verifica che i passi di assegnamento accelerati (Elkan e Hamerly) producano lo stesso clustering
+ * dell'assegnamento classico di Lloyd a parità di seme: stesse etichette, stesso numero di iterazioni e
+ * stesso errore, con esecuzione sequenziale e parallela. Verifica inoltre il limite di memoria dei limiti
+ * inferiori di Elkan.
+ * Si esegue con java mining.AssignmentEngineTest; in caso di errore lancia AssertionError.
+ */
+public class AssignmentEngineTest {
+
+  /**
+   * Crea un file CSV con gruppi di transazioni attorno a centri casuali, con due colonne continue
+   * e due discrete.
+   *
+   * @param rows Numero di righe.
+   * @param seed Il seme della generazione.
+   * @return Il percorso del file.
+   * @throws IOException Eccezione lanciata in caso di errori di I/O.
+   */
+  static Path sampleCsv(int rows, long seed) throws IOException {
+    Path file = Files.createTempFile("kmeans", ".csv");
+    file.toFile().deleteOnExit();
+    Random rand = new Random(seed);
+    String[] colors = {"red", "green", "blue", "black"};
+    String[] sizes = {"small", "medium", "large"};
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+      out.println("x,y,color,size");
+      for (int i = 0; i < rows; i++) {
+        int group = rand.nextInt(6);
+        out.println((group * 10 + rand.nextGaussian() * 3) + "," + (group % 3 * 7 + rand.nextGaussian() * 2) + ","
+            + colors[(group + (rand.nextInt(5) == 0 ? 1 : 0)) % colors.length] + "," + sizes[rand.nextInt(sizes.length)]);
+      }
+    }
+    return file;
+  }
+
+  /**
+   * Crea un KMeansMiner con la configurazione specificata.
+   *
+   * @param k         Il numero di cluster.
+   * @param algorithm La strategia di assegnamento.
+   * @param seeding   La strategia di scelta dei centroidi iniziali.
+   * @param threads   Il numero di thread.
+   * @return Il KMeansMiner da addestrare.
+   * @throws Exception Eccezione lanciata se la configurazione non è valida.
+   */
+  private static KMeansMiner miner(int k, Algorithm algorithm, Seeding seeding, int threads) throws Exception {
+    KMeansMiner miner = new KMeansMiner(k);
+    miner.setAlgorithm(algorithm);
+    miner.setSeeding(seeding);
+    miner.setSeed(42);
+    miner.setParallelism(threads);
+    return miner;
+  }
+
+  /**
+   * Lancia AssertionError se la condizione è falsa.
+   *
+   * @param condition La condizione da verificare.
+   * @param message   Il messaggio di errore.
+   */
+  private static void check(boolean condition, String message) {
+    if (!condition) throw new AssertionError(message);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Data data = CsvSource.read(sampleCsv(5000, 1).toString(), ',', 1);
+    int n = data.getNumberOfExamples();
+    for (Seeding seeding : Seeding.values()) {
+      for (int k : new int[]{2, 6, 15}) {
+        KMeansMiner lloyd = miner(k, Algorithm.LLOYD, seeding, 1);
+        int iterations = lloyd.kmeans(data);
+        for (Algorithm algorithm : new Algorithm[]{Algorithm.ELKAN, Algorithm.HAMERLY}) {
+          for (int threads : new int[]{1, 4}) {
+            String run = algorithm + " " + seeding + " k=" + k + " threads=" + threads;
+            KMeansMiner other = miner(k, algorithm, seeding, threads);
+            check(other.kmeans(data) == iterations, run + ": numero di iterazioni diverso");
+            for (int id = 0; id < n; id++)
+              check(lloyd.getC().labelOf(id) == other.getC().labelOf(id), run + ": etichetta diversa per la transazione " + id);
+            check(Math.abs(lloyd.getError() - other.getError()) <= 1e-9 * Math.max(1, lloyd.getError()),
+                run + ": errore " + other.getError() + " invece di " + lloyd.getError());
+            check(lloyd.getC().toString().equals(other.getC().toString()), run + ": centroidi diversi");
+          }
+        }
+      }
+    }
+    check(ElkanEngine.fits(10_000, 100), "n·k entro il limite rifiutato");
+    check(!ElkanEngine.fits(Integer.MAX_VALUE, 2), "n·k oltre il limite accettato");
+    long memoryBounds = (long) (Runtime.getRuntime().maxMemory() * ElkanEngine.MEMORY_FRACTION) / Double.BYTES;
+    check(!ElkanEngine.fits((int) Math.min(Integer.MAX_VALUE, memoryBounds / 10 + 1), 10), "limiti oltre la memoria consentita accettati");
+    KMeansMiner elkan = miner(6, Algorithm.ELKAN, Seeding.KMEANS_PLUS_PLUS, 1);
+    elkan.kmeans(data);
+    check(elkan.getStatistics().startsWith("Algoritmo: ELKAN\n"), "strategia usata riportata in modo errato");
+    System.out.println("AssignmentEngineTest: OK");
+  }
+}
@@ -0,0 +1,82 @@
+package mining;
+
+import data.CsvSource;
+import data.Data;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Verifica che le strategie di scelta dei centroidi iniziali siano riproducibili: a parità di seme
+ * k-means++ e k-means|| scelgono le stesse transazioni a ogni esecuzione e indipendentemente dal numero
+ * di thread, e le transazioni scelte sono distinte. Verifica inoltre che più avvii eseguiti in parallelo
+ * scelgano lo stesso clustering dell'esecuzione in sequenza.
+ * Si esegue con java mining.SeedingTest; in caso di errore lancia AssertionError.
+ */
+public class SeedingTest {
+
+  /**
+   * Lancia AssertionError se la condizione è falsa.
+   *
+   * @param condition La condizione da verificare.
+   * @param message   Il messaggio di errore.
+   */
+  private static void check(boolean condition, String message) {
+    if (!condition) throw new AssertionError(message);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Data data = CsvSource.read(AssignmentEngineTest.sampleCsv(20_000, 2).toString(), ',', 1);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (Seeding seeding : new Seeding[]{Seeding.KMEANS_PLUS_PLUS, Seeding.KMEANS_PARALLEL}) {
+        for (int k : new int[]{1, 5, 40}) {
+          for (long seed : new long[]{0, 7, 123456789}) {
+            String run = seeding + " k=" + k + " seme=" + seed;
+            int[] first = seeding.select(data, k, seed, null);
+            check(first.length == k, run + ": " + first.length + " centroidi invece di " + k);
+            check(Arrays.equals(first, seeding.select(data, k, seed, null)), run + ": scelta non riproducibile");
+            check(Arrays.equals(first, seeding.select(data, k, seed, pool)), run + ": scelta diversa con 4 thread");
+            Set<Integer> distinct = new HashSet<>();
+            for (int id : first) {
+              check(id >= 0 && id < data.getNumberOfExamples(), run + ": indice fuori intervallo " + id);
+              distinct.add(id);
+            }
+            check(distinct.size() == k, run + ": transazioni ripetute");
+          }
+        }
+      }
+      // a parità di seme anche l'addestramento completo è riproducibile
+      for (Seeding seeding : new Seeding[]{Seeding.KMEANS_PLUS_PLUS, Seeding.KMEANS_PARALLEL}) {
+        String[] runs = new String[2];
+        for (int r = 0; r < runs.length; r++) {
+          KMeansMiner miner = new KMeansMiner(6);
+          miner.setSeeding(seeding);
+          miner.setSeed(99);
+          miner.setParallelism(r + 1);
+          miner.kmeans(data);
+          runs[r] = miner.getC().toString();
+        }
+        check(runs[0].equals(runs[1]), seeding + ": centroidi finali diversi");
+      }
+      // più avvii, eseguiti in parallelo se il numero di thread non è impostato: stesso risultato che in sequenza
+      KMeansMiner concurrent = new KMeansMiner(6);
+      concurrent.setSeed(5);
+      concurrent.setRestarts(4);
+      check(concurrent.getParallelism() == 4, "gli avvii non vengono eseguiti in parallelo");
+      concurrent.kmeans(data);
+      KMeansMiner sequential = new KMeansMiner(6);
+      sequential.setSeed(5);
+      sequential.setRestarts(4);
+      sequential.setParallelism(1);
+      sequential.kmeans(data);
+      check(concurrent.getError() == sequential.getError() && concurrent.getC().toString().equals(sequential.getC().toString()),
+          "avvii in parallelo diversi da quelli in sequenza");
+    } finally {
+      pool.shutdown();
+    }
+    System.out.println("SeedingTest: OK");
+  }
+}